@@ -2,10 +2,11 @@ package bullet.impl;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.inject.Provider;
 import javax.inject.Qualifier;
-import javax.lang.model.element.Element;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.ExecutableType;
@@ -32,7 +33,8 @@ import dagger.Subcomponent;
 abstract class ComponentMethodDescriptor {
   enum ComponentMethodKind {
     SIMPLE_PROVISION,
-    PROVIDER_OR_LAZY,
+    PROVIDER,
+    LAZY,
     SIMPLE_MEMBERS_INJECTION,
     MEMBERS_INJECTOR,
   }
@@ -40,6 +42,8 @@ abstract class ComponentMethodDescriptor {
   abstract ComponentMethodKind kind();
   abstract DeclaredType type();
   abstract String name();
+  /** The qualifier of provision methods, if any. */
+  abstract Optional<AnnotationMirror> qualifier();
 
   @Override
   public boolean equals(Object obj) {
@@ -52,7 +56,8 @@ abstract class ComponentMethodDescriptor {
     ComponentMethodDescriptor other = (ComponentMethodDescriptor) obj;
     return Objects.equals(this.kind(), other.kind())
         && MoreTypes.equivalence().equivalent(this.type(), other.type())
-        && Objects.equals(this.name(), other.name());
+        && Objects.equals(this.name(), other.name())
+        && AnnotationMirrors.equivalence().equivalent(this.qualifier().orNull(), other.qualifier().orNull());
   }
 
   @Override
@@ -60,30 +65,35 @@ abstract class ComponentMethodDescriptor {
     return Objects.hash(
         this.kind(),
         MoreTypes.equivalence().wrap(this.type()),
-        this.name());
+        this.name(),
+        AnnotationMirrors.equivalence().wrap(this.qualifier().orNull()));
   }
 
   @Override
   public String toString() {
+    if (this.qualifier().isPresent()) {
+      return this.qualifier().get() + " " + toStringWithoutQualifier();
+    }
+    return toStringWithoutQualifier();
+  }
+
+  private String toStringWithoutQualifier() {
     switch (this.kind()) {
       case SIMPLE_PROVISION:
         return MethodSpec.methodBuilder(this.name())
-            .returns(TypeName.get(this.type()))
+            .returns(TypeNames.get(this.type()))
             .build()
             .toString();
-      case PROVIDER_OR_LAZY:
+      case PROVIDER:
+      case LAZY:
+      case MEMBERS_INJECTOR:
         return MethodSpec.methodBuilder(this.name())
-            .returns(ParameterizedTypeName.get(ClassName.get(Provider.class), TypeName.get(this.type())))
+            .returns(this.handleType().get())
             .build()
             .toString();
       case SIMPLE_MEMBERS_INJECTION:
         return MethodSpec.methodBuilder(this.name())
-            .addParameter(TypeName.get(this.type()), "instance")
-            .build()
-            .toString();
-      case MEMBERS_INJECTOR:
-        return MethodSpec.methodBuilder(this.name())
-            .returns(ParameterizedTypeName.get(ClassName.get(MembersInjector.class), TypeName.get(this.type())))
+            .addParameter(TypeNames.get(this.type()), "instance")
             .build()
             .toString();
       default:
@@ -96,10 +106,14 @@ abstract class ComponentMethodDescriptor {
     ExecutableType resolvedComponentMethod = MoreTypes.asExecutable(types.asMemberOf(componentElement, componentMethod));
     TypeMirror returnType = resolvedComponentMethod.getReturnType();
     if (returnType.getKind() == TypeKind.DECLARED) {
-      if (MoreTypes.isTypeOf(Provider.class, returnType)
-          || MoreTypes.isTypeOf(Lazy.class, returnType)) {
+      if (MoreTypes.isTypeOf(Provider.class, returnType)) {
+        return methodDescriptor(
+            ComponentMethodKind.PROVIDER,
+            MoreTypes.asDeclared(MoreTypes.asDeclared(returnType).getTypeArguments().get(0)),
+            componentMethod);
+      } else if (MoreTypes.isTypeOf(Lazy.class, returnType)) {
         return methodDescriptor(
-            ComponentMethodKind.PROVIDER_OR_LAZY,
+            ComponentMethodKind.LAZY,
             MoreTypes.asDeclared(MoreTypes.asDeclared(returnType).getTypeArguments().get(0)),
             componentMethod);
       } else if (MoreTypes.isTypeOf(MembersInjector.class, returnType)) {
@@ -121,6 +135,15 @@ abstract class ComponentMethodDescriptor {
           componentMethod);
     }
 
+    if (resolvedComponentMethod.getParameterTypes().isEmpty()
+        && resolvedComponentMethod.getReturnType().getKind().isPrimitive()) {
+      // Like Dagger, use the boxed type as the key
+      return methodDescriptor(
+          ComponentMethodKind.SIMPLE_PROVISION,
+          MoreTypes.asDeclared(types.boxedClass(MoreTypes.asPrimitiveType(returnType)).asType()),
+          componentMethod);
+    }
+
     List<? extends TypeMirror> parameterTypes = resolvedComponentMethod.getParameterTypes();
     if (parameterTypes.size() == 1
         && parameterTypes.get(0).getKind() == TypeKind.DECLARED
@@ -138,14 +161,30 @@ abstract class ComponentMethodDescriptor {
 
   private static Optional<ComponentMethodDescriptor> methodDescriptor(
       ComponentMethodKind kind, DeclaredType type, ExecutableElement componentMethod) {
-    // ObjectGraph API doesn't allow passing qualifier as input, so ignore those methods.
-    if (hasQualifier(componentMethod)) {
-      return Optional.absent();
+    Optional<AnnotationMirror> qualifier = Optional.absent();
+    Set<? extends AnnotationMirror> qualifiers = AnnotationMirrors.getAnnotatedAnnotations(componentMethod, Qualifier.class);
+    if (!qualifiers.isEmpty()) {
+      // Qualifiers make no sense on members-injection methods, let Dagger report that.
+      if (kind == ComponentMethodKind.SIMPLE_MEMBERS_INJECTION || kind == ComponentMethodKind.MEMBERS_INJECTOR) {
+        return Optional.absent();
+      }
+      qualifier = Optional.<AnnotationMirror>of(qualifiers.iterator().next());
     }
-    return Optional.<ComponentMethodDescriptor>of(new AutoValue_ComponentMethodDescriptor(kind, type, componentMethod.getSimpleName().toString()));
+    return Optional.<ComponentMethodDescriptor>of(
+        new AutoValue_ComponentMethodDescriptor(kind, type, componentMethod.getSimpleName().toString(), qualifier));
   }
 
-  static boolean hasQualifier(Element e) {
-    return !AnnotationMirrors.getAnnotatedAnnotations(e, Qualifier.class).isEmpty();
+  /** Returns the type of the handle returned by the component method, for methods that return one. */
+  Optional<TypeName> handleType() {
+    switch (this.kind()) {
+      case PROVIDER:
+        return Optional.<TypeName>of(ParameterizedTypeName.get(ClassName.get(Provider.class), TypeNames.get(this.type())));
+      case LAZY:
+        return Optional.<TypeName>of(ParameterizedTypeName.get(ClassName.get(Lazy.class), TypeNames.get(this.type())));
+      case MEMBERS_INJECTOR:
+        return Optional.<TypeName>of(ParameterizedTypeName.get(ClassName.get(MembersInjector.class), TypeNames.get(this.type())));
+      default:
+        return Optional.absent();
+    }
   }
 }
@@ -22,22 +22,42 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import javax.annotation.Generated;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Provider;
+import javax.inject.Qualifier;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
 import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 
+import com.google.auto.common.AnnotationMirrors;
 import com.google.auto.common.BasicAnnotationProcessor;
 import com.google.auto.common.MoreElements;
 import com.google.auto.common.MoreTypes;
 import com.google.auto.common.Visibility;
+import com.google.common.base.CaseFormat;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
@@ -45,27 +65,74 @@ import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
 
-import bullet.impl.ComponentMethodDescriptor.ComponentMethodKind;
 import dagger.Component;
+import dagger.MembersInjector;
 import dagger.Subcomponent;
+import dagger.producers.ProductionComponent;
 
 class ComponentProcessingStep implements BasicAnnotationProcessor.ProcessingStep {
 
+  private static final String PROVISION_INDEX = "PROVISION_INDEX";
+  private static final String MEMBERS_INJECTION_INDEX = "MEMBERS_INJECTION_INDEX";
+  private static final String KEY_PROVISION_INDEX = "KEY_PROVISION_INDEX";
+  private static final String PRODUCTION_INDEX = "PRODUCTION_INDEX";
+  private static final ParameterizedTypeName CLASS_VALUE_OF_INTEGER =
+      ParameterizedTypeName.get(ClassName.get(ClassValue.class), ClassName.get(Integer.class));
+
+  private static final ParameterizedTypeName WILDCARD_CLASS =
+      ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class));
+  private static final ClassName KEY = ClassName.get("bullet", "Key");
+  private static final ClassName BINDING_KEY = ClassName.get("bullet", "BindingKey");
+  private static final ClassName OBJECT_GRAPH = ClassName.get("bullet", "ObjectGraph");
+  private static final ClassName EMPTY_OBJECT_GRAPH = ClassName.get("bullet", "EmptyObjectGraph");
+  private static final ClassName BATCH_INJECTION = ClassName.get("bullet", "BatchInjection");
+  private static final ClassName INJECTED_INSTANCES = ClassName.get("bullet", "InjectedInstances");
+  private static final ClassName WARM_UP = ClassName.get("bullet", "WarmUp");
+  private static final ClassName ASYNC_OBJECT_GRAPH = ClassName.get("bullet", "AsyncObjectGraph");
+  // Built at runtime so that it's not relocated along with the processor's own (shaded) copy of Guava
+  private static final ClassName LISTENABLE_FUTURE =
+      ClassName.get(Joiner.on('.').join("com", "google", "common", "util", "concurrent"), "ListenableFuture");
+  private static final ParameterizedTypeName WILDCARD_COLLECTION =
+      ParameterizedTypeName.get(ClassName.get(Collection.class), WildcardTypeName.subtypeOf(Object.class));
+  private static final ParameterizedTypeName WILDCARD_KEY =
+      ParameterizedTypeName.get(KEY, WildcardTypeName.subtypeOf(Object.class));
+  private static final ParameterizedTypeName CONCURRENT_MAP_OF_KEY_TO_INTEGER =
+      ParameterizedTypeName.get(ClassName.get(ConcurrentMap.class), WILDCARD_KEY, ClassName.get(Integer.class));
+
+  // Estimated bytecode size of each case in generated code, see MethodSplitter
+  private static final int PROVISION_CASE_SIZE = 30;
+  private static final int MEMBERS_INJECTION_CASE_SIZE = 30;
+  private static final int CLASS_CASE_SIZE = 15;
+  private static final int NAME_CASE_SIZE = 45;
+  private static final int KEY_CASE_SIZE = 30;
+  private static final int QUALIFIER_CASE_SIZE = 40;
+
   private final ProcessingEnvironment processingEnv;
+  private final boolean deferClassLoading;
+  private final boolean idempotentInject;
+  private final MethodSplitter splitter = new MethodSplitter(MethodSplitter.DEFAULT_MAX_METHOD_SIZE);
+  private final QualifierMatcher qualifierMatcher;
 
   ComponentProcessingStep(ProcessingEnvironment processingEnv) {
     this.processingEnv = processingEnv;
+    this.deferClassLoading = Boolean.parseBoolean(processingEnv.getOptions().get(ComponentProcessor.DEFER_CLASS_LOADING_OPTION));
+    this.idempotentInject = Boolean.parseBoolean(processingEnv.getOptions().get(ComponentProcessor.IDEMPOTENT_INJECT_OPTION));
+    this.qualifierMatcher = new QualifierMatcher(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
   }
 
   @Override
   public Set<? extends Class<? extends Annotation>> annotations() {
-    return ImmutableSet.of(Component.class, Subcomponent.class);
+    return ImmutableSet.of(Component.class, Subcomponent.class, ProductionComponent.class);
   }
 
   @Override
@@ -78,11 +145,15 @@ class ComponentProcessingStep implements BasicAnnotationProcessor.ProcessingStep
       TypeElement componentElement = MoreElements.asType(element);
       generateObjectGraph(componentElement);
     }
+    for (Element element : elementsByAnnotation.get(ProductionComponent.class)) {
+      generateAsyncObjectGraph(MoreElements.asType(element));
+    }
   }
 
   private void generateObjectGraph(TypeElement element) {
     DeclaredType component = MoreTypes.asDeclared(element.asType());
     ArrayList<ComponentMethodDescriptor> provisionMethods = new ArrayList<>();
+    List<ExecutableElement> subcomponentMethods = new ArrayList<>();
     MembersInjectionMethodsBuilder membersInjectionMethods = new MembersInjectionMethodsBuilder(processingEnv.getTypeUtils());
 
     PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(element);
@@ -94,6 +165,10 @@ class ComponentProcessingStep implements BasicAnnotationProcessor.ProcessingStep
       if (!isVisibleFrom(method, packageElement)) {
         continue;
       }
+      if (isSubcomponentMethod(component, method, packageElement)) {
+        subcomponentMethods.add(method);
+        continue;
+      }
       Optional<ComponentMethodDescriptor> optMethodDescriptor =
           ComponentMethodDescriptor.forComponentMethod(processingEnv.getTypeUtils(), component, method);
       if (!optMethodDescriptor.isPresent()) {
@@ -103,10 +178,25 @@ class ComponentProcessingStep implements BasicAnnotationProcessor.ProcessingStep
       if (!isVisibleFrom(processingEnv.getTypeUtils().asElement(methodDescriptor.type()), packageElement)) {
         continue;
       }
+      if (methodDescriptor.qualifier().isPresent()) {
+        AnnotationMirror qualifier = methodDescriptor.qualifier().get();
+        if (!isVisibleFrom(qualifier.getAnnotationType().asElement(), packageElement)) {
+          continue;
+        }
+        if (!qualifierMatcher.attributeComparisons(qualifier, "qualifier").isPresent()) {
+          processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+              "Qualifiers with annotation-typed attributes are not supported, this method won't be reachable through the ObjectGraph",
+              method, qualifier);
+          continue;
+        }
+      }
       switch (methodDescriptor.kind()) {
         case SIMPLE_PROVISION:
-        case PROVIDER_OR_LAZY:
-          provisionMethods.add(methodDescriptor);
+        case PROVIDER:
+        case LAZY:
+          if (!hasProvisionMethodForKey(provisionMethods, methodDescriptor)) {
+            provisionMethods.add(methodDescriptor);
+          }
           break;
         case SIMPLE_MEMBERS_INJECTION:
         case MEMBERS_INJECTOR:
@@ -119,72 +209,1122 @@ class ComponentProcessingStep implements BasicAnnotationProcessor.ProcessingStep
 
     final ClassName elementName = ClassName.get(element);
 
-    final TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Bullet" + Joiner.on("_").join(elementName.simpleNames()))
+    final ClassName graphName = graphName(elementName);
+
+    final TypeSpec.Builder classBuilder = TypeSpec.classBuilder(graphName.simpleName())
         .addOriginatingElement(element)
         .addAnnotation(AnnotationSpec.builder(Generated.class)
             .addMember("value", "$S", ComponentProcessor.class.getCanonicalName())
             .build())
         .addModifiers(PUBLIC, FINAL)
-        .addSuperinterface(ClassName.get("bullet", "ObjectGraph"))
+        .addSuperinterface(OBJECT_GRAPH)
 
         .addField(elementName, "component", PRIVATE, FINAL)
+        // Whatever the object graph cannot provide or inject itself is delegated to its parent
+        .addField(OBJECT_GRAPH, "parent", PRIVATE, FINAL)
 
         .addMethod(MethodSpec.constructorBuilder()
             .addModifiers(PUBLIC)
             .addParameter(elementName, "component", FINAL)
-            .addCode("this.component = component;\n")
+            .addCode("this(component, $T.INSTANCE);\n", EMPTY_OBJECT_GRAPH)
+            .build())
+        .addMethod(MethodSpec.constructorBuilder()
+            .addModifiers(PUBLIC)
+            .addParameter(elementName, "component", FINAL)
+            .addParameter(OBJECT_GRAPH, "parent", FINAL)
+            .addCode(
+                "this.component = component;\n" +
+                "this.parent = parent;\n")
             .build());
 
+    final HandleCache handles = new HandleCache(classBuilder);
+
+    // TODO: exception message
+    final CodeBlock throwIllegalArgumentException = CodeBlock.builder()
+        .add("throw new $T();\n", IllegalArgumentException.class)
+        .build();
     final TypeVariableName t = TypeVariableName.get("T");
-    final MethodSpec.Builder getBuilder = MethodSpec.methodBuilder("get")
+
+    MethodSpec provisionMethod = null;
+    MethodSpec staticProvisionMethod = null;
+    MethodSpec provisionIndexMethod = null;
+    List<String> keyNamesByIndex = null;
+    MethodSpec keyProvisionIndexMethod = null;
+    if (!provisionMethods.isEmpty()) {
+      // Resolve the requested type to the index of its provision method once per class, then dispatch with a switch.
+      final TypeSpec.Builder classValueBuilder = classValueBuilder();
+      final MethodSpec.Builder computeValueBuilder = computeValueBuilder();
+      List<CodeBlock> indexCases = new ArrayList<>(provisionMethods.size());
+      List<TypeMirror> indexedTypes = new ArrayList<>(provisionMethods.size());
+      KeyCases keyCases = new KeyCases();
+      List<CodeBlock> provisionCases = new ArrayList<>(provisionMethods.size());
+      List<CodeBlock> staticProvisionCases = new ArrayList<>(provisionMethods.size());
+      for (int index = 0; index < provisionMethods.size(); index++) {
+        ComponentMethodDescriptor method = provisionMethods.get(index);
+        TypeMirror rawType = processingEnv.getTypeUtils().erasure(method.type());
+        String rawTypeName = typeName(rawType).get();
+        Optional<String> typeName = typeName(method.type());
+        if (typeName.isPresent() && (method.qualifier().isPresent() || !typeName.get().equals(rawTypeName))) {
+          keyCases.add(typeName.get(), method, index);
+        }
+        // Raw types (be they Class or Key lookups) resolve to the first method for the erasure and qualifier
+        if (method.qualifier().isPresent()) {
+          keyCases.add(rawTypeName, method, index);
+        } else if (!containsSameType(indexedTypes, rawType)) {
+          indexedTypes.add(rawType);
+          indexCases.add(deferClassLoading
+              ? nameCase(method.type(), index)
+              : CodeBlock.builder()
+                  .add(
+                      "if (type == $T.class) {\n$>" +
+                      "return $L;\n" +
+                      "$<}\n",
+                      rawType, index)
+                  .build());
+        }
+        provisionCases.add(CodeBlock.builder()
+            .add("return $L;\n", handles.provision(method))
+            .build());
+        staticProvisionCases.add(CodeBlock.builder()
+            .add("return $L;\n", HandleCache.staticProvision(method))
+            .build());
+      }
+      addIndexCases(classValueBuilder, computeValueBuilder, indexCases);
+      computeValueBuilder.addCode("return -1;\n");
+      classBuilder.addField(classValueIndex(PROVISION_INDEX, classValueBuilder, computeValueBuilder));
+
+      final MethodSpec provisionSignature = MethodSpec.methodBuilder("provision")
+          .returns(Object.class)
+          .addParameter(TypeName.INT, "index", FINAL)
+          .build();
+      final MethodSpec.Builder provisionBuilder = MethodSpec.methodBuilder("provision")
+          .addModifiers(PRIVATE)
+          .returns(Object.class)
+          .addParameter(provisionSignature.parameters.get(0));
+      splitter.addSwitch(classBuilder, provisionSignature, provisionBuilder,
+          provisionCases, PROVISION_CASE_SIZE, throwIllegalArgumentException);
+      provisionMethod = provisionBuilder.build();
+
+      // Same as provision(), for the static entry points, without caching handles as there's no instance to hold them
+      final MethodSpec staticProvisionSignature = MethodSpec.methodBuilder("provision")
+          .addModifiers(STATIC)
+          .returns(Object.class)
+          .addParameter(elementName, "component", FINAL)
+          .addParameter(TypeName.INT, "index", FINAL)
+          .build();
+      final MethodSpec.Builder staticProvisionBuilder = MethodSpec.methodBuilder("provision")
+          .addModifiers(PRIVATE, STATIC)
+          .returns(Object.class)
+          .addParameter(staticProvisionSignature.parameters.get(0))
+          .addParameter(staticProvisionSignature.parameters.get(1));
+      splitter.addSwitch(classBuilder, staticProvisionSignature, staticProvisionBuilder,
+          staticProvisionCases, PROVISION_CASE_SIZE, throwIllegalArgumentException);
+      staticProvisionMethod = staticProvisionBuilder.build();
+
+      final MethodSpec.Builder provisionIndexBuilder = MethodSpec.methodBuilder("provisionIndex")
+          .addModifiers(PRIVATE)
+          .returns(TypeName.INT)
+          .addParameter(WILDCARD_KEY, "key", FINAL);
+      if (keyCases.isEmpty()) {
+        provisionIndexBuilder.addCode(
+            "if (key.getQualifierType() != null || !(key.getType() instanceof $T)) {\n$>" +
+            "return -1;\n" +
+            "$<}\n" +
+            "return $N.get(key.getRawType());\n",
+            Class.class, PROVISION_INDEX);
+      } else {
+        // Qualified keys and keys for parameterized types are matched by the canonical name of their type (a string
+        // switch, i.e. a hash lookup) then against each method for that type once, then looked up in a map; keys are
+        // expected to be reused, in which case they're found by identity, without comparing the qualifiers' attributes.
+        classBuilder.addField(FieldSpec.builder(CONCURRENT_MAP_OF_KEY_TO_INTEGER, KEY_PROVISION_INDEX, PRIVATE, STATIC, FINAL)
+            .initializer("new $T<$T, $T>()", ConcurrentHashMap.class, WILDCARD_KEY, Integer.class)
+            .build());
+        final MethodSpec keyProvisionIndexSignature = MethodSpec.methodBuilder("keyProvisionIndex")
+            .addParameter(WILDCARD_KEY, "key", FINAL)
+            .build();
+        final MethodSpec.Builder keyProvisionIndexBuilder = MethodSpec.methodBuilder("keyProvisionIndex")
+            .addModifiers(PRIVATE)
+            .returns(TypeName.INT)
+            .addParameter(keyProvisionIndexSignature.parameters.get(0));
+        keyCases.addTo(classBuilder, keyProvisionIndexSignature, keyProvisionIndexBuilder);
+        keyProvisionIndexBuilder.addCode("return -1;\n");
+        keyProvisionIndexMethod = keyProvisionIndexBuilder.build();
+
+        provisionIndexBuilder.addCode(
+            "if (key.getQualifierType() == null && key.getType() instanceof $T) {\n$>" +
+            "return $N.get(key.getRawType());\n" +
+            "$<}\n" +
+            "$T index = $N.get(key);\n" +
+            "if (index == null) {\n$>" +
+            "index = this.$N(key);\n" +
+            "if (index >= 0) {\n$>" +
+            "// Only cache matches, so that the map cannot grow past the number of methods\n" +
+            "$N.putIfAbsent(key, index);\n" +
+            "$<}\n" +
+            "$<}\n" +
+            "return index;\n",
+            Class.class, PROVISION_INDEX, Integer.class, KEY_PROVISION_INDEX, keyProvisionIndexMethod,
+            KEY_PROVISION_INDEX);
+      }
+      provisionIndexMethod = provisionIndexBuilder.build();
+
+      // One constant per binding, carrying its index, so that it can be provided without any lookup
+      keyNamesByIndex = new ArrayList<>();
+      final TypeSpec.Builder keysBuilder = TypeSpec.classBuilder("Keys")
+          .addModifiers(PUBLIC, STATIC, FINAL)
+          .addMethod(MethodSpec.constructorBuilder()
+              .addModifiers(PRIVATE)
+              .build());
+      Set<String> keyNames = Sets.newHashSet();
+      for (int index = 0; index < provisionMethods.size(); index++) {
+        ComponentMethodDescriptor method = provisionMethods.get(index);
+        String name = CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, method.name());
+        for (int i = 2; !keyNames.add(name); i++) {
+          name = CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, method.name()) + "_" + i;
+        }
+        keyNamesByIndex.add(name);
+        TypeName type = TypeNames.get(method.type());
+        keysBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(BINDING_KEY, type), name, PUBLIC, STATIC, FINAL)
+            .initializer("new $T<$T>($T.class, $L, $S)", BINDING_KEY, type, graphName, index, method.name())
+            .build());
+      }
+      classBuilder.addType(keysBuilder.build());
+    }
+    addLookupMethods(classBuilder, ClassName.get(Class.class), "type",
+        CodeBlock.builder().add("$N.get(type)", PROVISION_INDEX).build(),
+        "type.cast($L)", false, provisionMethod);
+    // Key.getRawType() is a Class<? super T> (e.g. Class<List> for a Key<List<String>>), so use an unchecked cast
+    addLookupMethods(classBuilder, KEY, "key",
+        provisionIndexMethod == null ? null : CodeBlock.builder().add("this.$N(key)", provisionIndexMethod).build(),
+        "(T) $L", true, provisionMethod);
+    final MethodSpec.Builder getBindingBuilder = MethodSpec.methodBuilder("get")
         .addAnnotation(Override.class)
         .addModifiers(PUBLIC)
         .addTypeVariable(t)
         .returns(t)
-        .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), t), "type", FINAL);
-    for (ComponentMethodDescriptor method : provisionMethods) {
-      getBuilder.addCode(
-          "if (type == $T.class) {\n$>" +
-          "return type.cast(this.component.$N()$L);\n" +
-          "$<}\n",
-          method.type(), method.name(), method.kind() == ComponentMethodKind.PROVIDER_OR_LAZY ? ".get()" : "");
+        .addParameter(ParameterizedTypeName.get(BINDING_KEY, t), "key", FINAL);
+    if (provisionMethod != null) {
+      getBindingBuilder
+          .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+              .addMember("value", "$S", "unchecked")
+              .build())
+          .addCode(
+              "if (key.getGraphType() != $T.class) {\n$>" +
+              "$L" +
+              "$<}\n" +
+              "return (T) this.$N(key.getId());\n",
+              graphName, miss("get", "key"), provisionMethod);
+    } else {
+      getBindingBuilder.addCode(miss("get", "key"));
     }
-    // TODO: exception message
-    getBuilder.addCode("throw new $T();\n", IllegalArgumentException.class);
-    classBuilder.addMethod(getBuilder.build());
+    classBuilder.addMethod(getBindingBuilder.build());
+    final MethodSpec.Builder canProvideBindingBuilder = MethodSpec.methodBuilder("canProvide")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addParameter(ParameterizedTypeName.get(BINDING_KEY, WildcardTypeName.subtypeOf(Object.class)), "key", FINAL);
+    if (provisionMethod != null) {
+      canProvideBindingBuilder.addCode("return key.getGraphType() == $T.class || this.parent.canProvide(key);\n",
+          graphName);
+    } else {
+      canProvideBindingBuilder.addCode(miss("canProvide", "key"));
+    }
+    classBuilder.addMethod(canProvideBindingBuilder.build());
+    addPrimitiveAccessor(classBuilder, "getInt", TypeName.INT, Integer.class,
+        provisionMethods, provisionIndexMethod, handles);
+    addPrimitiveAccessor(classBuilder, "getLong", TypeName.LONG, Long.class,
+        provisionMethods, provisionIndexMethod, handles);
+    addPrimitiveAccessor(classBuilder, "getDouble", TypeName.DOUBLE, Double.class,
+        provisionMethods, provisionIndexMethod, handles);
+    addPrimitiveAccessor(classBuilder, "getBoolean", TypeName.BOOLEAN, Boolean.class,
+        provisionMethods, provisionIndexMethod, handles);
 
-    final MethodSpec.Builder injectWriter = MethodSpec.methodBuilder("inject")
+    final MethodSpec.Builder injectBuilder = MethodSpec.methodBuilder("inject")
         .addAnnotation(Override.class)
         .addModifiers(PUBLIC)
         .addTypeVariable(t)
         .returns(t)
         .addParameter(t, "instance", FINAL);
-    for (ComponentMethodDescriptor method : membersInjectionMethods.build()) {
-      injectWriter.addCode(
-          "if (instance instanceof $T) {\n$>" +
-          "this.component.$N$L(($T) instance);\n" +
-          "return instance;\n" +
-          "$<}\n",
-          method.type(), method.name(), method.kind() == ComponentMethodKind.MEMBERS_INJECTOR ? "().injectMembers" : "", method.type());
+    final MethodSpec.Builder membersInjectorBuilder = MethodSpec.methodBuilder("membersInjector")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addTypeVariable(t)
+        .returns(ParameterizedTypeName.get(ClassName.get(MembersInjector.class), t))
+        .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), t), "type", FINAL);
+    final MethodSpec.Builder canInjectBuilder = MethodSpec.methodBuilder("canInject")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addParameter(WILDCARD_CLASS, "type", FINAL);
+    MethodSpec membersInjectionMethod = null;
+    MethodSpec staticMembersInjectionMethod = null;
+    List<ComponentMethodDescriptor> sortedMembersInjectionMethods = membersInjectionMethods.build();
+    if (!sortedMembersInjectionMethods.isEmpty()) {
+      // Memoize, per runtime class, the index of the most specific members-injection method (or -1 if none applies),
+      // then dispatch with a switch.
+      final TypeSpec.Builder classValueBuilder = classValueBuilder();
+      final MethodSpec.Builder computeValueBuilder = computeValueBuilder();
+      List<CodeBlock> indexCases = new ArrayList<>(sortedMembersInjectionMethods.size());
+      List<CodeBlock> membersInjectionCases = new ArrayList<>(sortedMembersInjectionMethods.size());
+      List<CodeBlock> staticMembersInjectionCases = new ArrayList<>(sortedMembersInjectionMethods.size());
+      for (int index = 0; index < sortedMembersInjectionMethods.size(); index++) {
+        ComponentMethodDescriptor method = sortedMembersInjectionMethods.get(index);
+        indexCases.add(deferClassLoading
+            ? nameCase(method.type(), index)
+            : CodeBlock.builder()
+                .add(
+                    "if ($T.class.isAssignableFrom(type)) {\n$>" +
+                    "return $L;\n" +
+                    "$<}\n",
+                    processingEnv.getTypeUtils().erasure(method.type()), index)
+                .build());
+        membersInjectionCases.add(CodeBlock.builder()
+            .add(
+                "$L;\n" +
+                "return;\n",
+                handles.membersInjection(method, CodeBlock.builder().add("($T) instance", TypeNames.get(method.type())).build()))
+            .build());
+        staticMembersInjectionCases.add(CodeBlock.builder()
+            .add(
+                "$L;\n" +
+                "return;\n",
+                HandleCache.staticMembersInjection(method, CodeBlock.builder().add("($T) instance", TypeNames.get(method.type())).build()))
+            .build());
+      }
+      addIndexCases(classValueBuilder, computeValueBuilder, indexCases);
+      if (deferClassLoading) {
+        // The runtime class's supertypes are necessarily loaded already, so look them up by name too (recursively,
+        // through the ClassValue itself); methods are sorted such that the lowest index is the most specific one.
+        computeValueBuilder.addCode(
+            "int index = -1;\n" +
+            "if (type.getSuperclass() != null) {\n$>" +
+            "index = get(type.getSuperclass());\n" +
+            "$<}\n" +
+            "for ($T supertype : type.getInterfaces()) {\n$>" +
+            "int candidate = get(supertype);\n" +
+            "if (candidate >= 0 && (index < 0 || candidate < index)) {\n$>" +
+            "index = candidate;\n" +
+            "$<}\n" +
+            "$<}\n" +
+            "return index;\n",
+            WILDCARD_CLASS);
+      } else {
+        computeValueBuilder.addCode("return -1;\n");
+      }
+      classBuilder.addField(classValueIndex(MEMBERS_INJECTION_INDEX, classValueBuilder, computeValueBuilder));
+
+      final MethodSpec membersInjectionSignature = MethodSpec.methodBuilder("membersInjection")
+          .addParameter(TypeName.INT, "index", FINAL)
+          .addParameter(Object.class, "instance", FINAL)
+          .build();
+      final MethodSpec.Builder membersInjectionBuilder = MethodSpec.methodBuilder("membersInjection")
+          .addModifiers(PRIVATE)
+          .addParameter(membersInjectionSignature.parameters.get(0))
+          .addParameter(membersInjectionSignature.parameters.get(1));
+      splitter.addSwitch(classBuilder, membersInjectionSignature, membersInjectionBuilder,
+          membersInjectionCases, MEMBERS_INJECTION_CASE_SIZE, throwIllegalArgumentException);
+      membersInjectionMethod = membersInjectionBuilder.build();
+
+      final MethodSpec staticMembersInjectionSignature = MethodSpec.methodBuilder("membersInjection")
+          .addModifiers(STATIC)
+          .addParameter(elementName, "component", FINAL)
+          .addParameter(TypeName.INT, "index", FINAL)
+          .addParameter(Object.class, "instance", FINAL)
+          .build();
+      final MethodSpec.Builder staticMembersInjectionBuilder = MethodSpec.methodBuilder("membersInjection")
+          .addModifiers(PRIVATE, STATIC)
+          .addParameter(staticMembersInjectionSignature.parameters.get(0))
+          .addParameter(staticMembersInjectionSignature.parameters.get(1))
+          .addParameter(staticMembersInjectionSignature.parameters.get(2));
+      splitter.addSwitch(classBuilder, staticMembersInjectionSignature, staticMembersInjectionBuilder,
+          staticMembersInjectionCases, MEMBERS_INJECTION_CASE_SIZE, throwIllegalArgumentException);
+      staticMembersInjectionMethod = staticMembersInjectionBuilder.build();
+
+      if (idempotentInject) {
+        // Only instances injected by this object graph are tracked here, those delegated to the parent aren't;
+        // neither are those injected through the static inject(component, instance), as there's no graph to track them.
+        classBuilder.addField(FieldSpec.builder(INJECTED_INSTANCES, "injectedInstances", PRIVATE, FINAL)
+            .initializer("new $T()", INJECTED_INSTANCES)
+            .build());
+        injectBuilder.addCode(
+            "if (this.injectedInstances.contains(instance)) {\n$>" +
+            "return instance;\n" +
+            "$<}\n");
+      }
+      injectBuilder.addCode(
+          "final int index = $N.get(instance.getClass());\n" +
+          "if (index < 0) {\n$>" +
+          "$L" +
+          "$<}\n" +
+          "this.$N(index, instance);\n",
+          MEMBERS_INJECTION_INDEX, miss("inject", "instance"),
+          membersInjectionMethod);
+      if (idempotentInject) {
+        injectBuilder.addCode("this.injectedInstances.add(instance);\n");
+      }
+      injectBuilder.addCode("return instance;\n");
+      // The returned members injector uses the method for the given type, whatever the runtime class of the instances.
+      membersInjectorBuilder.addCode(
+          "final int index = $N.get(type);\n" +
+          "if (index < 0) {\n$>" +
+          "$L" +
+          "$<}\n" +
+          "return $L;\n",
+          MEMBERS_INJECTION_INDEX, miss("membersInjector", "type"),
+          TypeSpec.anonymousClassBuilder("")
+              .superclass(ParameterizedTypeName.get(ClassName.get(MembersInjector.class), t))
+              .addMethod(MethodSpec.methodBuilder("injectMembers")
+                  .addAnnotation(Override.class)
+                  .addModifiers(PUBLIC)
+                  .addParameter(t, "instance", FINAL)
+                  .addCode(idempotentInject
+                      ? CodeBlock.builder()
+                          .add(
+                              "if (injectedInstances.contains(instance)) {\n$>" +
+                              "return;\n" +
+                              "$<}\n" +
+                              "$N(index, instance);\n" +
+                              "// Instances of subclasses with members of their own are only partially injected\n" +
+                              "if (index == $N.get(instance.getClass())) {\n$>" +
+                              "injectedInstances.add(instance);\n" +
+                              "$<}\n",
+                              membersInjectionMethod, MEMBERS_INJECTION_INDEX)
+                          .build()
+                      : CodeBlock.builder().add("$N(index, instance);\n", membersInjectionMethod).build())
+                  .build())
+              .build());
+      canInjectBuilder.addCode("return $N.get(type) >= 0 || this.parent.canInject(type);\n", MEMBERS_INJECTION_INDEX);
+    } else {
+      injectBuilder.addCode(miss("inject", "instance"));
+      membersInjectorBuilder.addCode(miss("membersInjector", "type"));
+      canInjectBuilder.addCode(miss("canInject", "type"));
     }
-    // TODO: exception message
-    injectWriter.addCode("throw new $T();\n", IllegalArgumentException.class);
-    classBuilder.addMethod(injectWriter.build());
+    classBuilder.addMethod(injectBuilder.build());
+    classBuilder.addMethod(membersInjectorBuilder.build());
+    classBuilder.addMethod(canInjectBuilder.build());
+    // Batches are injected one group of instances of the same runtime type at a time, through membersInjector
+    classBuilder.addMethod(MethodSpec.methodBuilder("injectAll")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(WILDCARD_COLLECTION, "instances", FINAL)
+        .addCode("$T.injectAll(this, instances);\n", BATCH_INJECTION)
+        .build());
+    classBuilder.addMethod(MethodSpec.methodBuilder("injectAll")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(WILDCARD_COLLECTION, "instances", FINAL)
+        .addParameter(Executor.class, "executor", FINAL)
+        .addCode("$T.injectAll(this, instances, executor);\n", BATCH_INJECTION)
+        .build());
+
+    // Static entry points, for callers that don't want to allocate an ObjectGraph to get or inject a few instances
+    final MethodSpec.Builder staticGetBuilder = MethodSpec.methodBuilder("get")
+        .addModifiers(PUBLIC, STATIC)
+        .addTypeVariable(t)
+        .returns(t)
+        .addParameter(elementName, "component", FINAL)
+        .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), t), "type", FINAL);
+    if (staticProvisionMethod != null) {
+      staticGetBuilder.addCode("return type.cast($N(component, $N.get(type)));\n",
+          staticProvisionMethod, PROVISION_INDEX);
+    } else {
+      staticGetBuilder.addCode(throwIllegalArgumentException);
+    }
+    classBuilder.addMethod(staticGetBuilder.build());
+    final MethodSpec.Builder staticInjectBuilder = MethodSpec.methodBuilder("inject")
+        .addModifiers(PUBLIC, STATIC)
+        .addTypeVariable(t)
+        .returns(t)
+        .addParameter(elementName, "component", FINAL)
+        .addParameter(t, "instance", FINAL);
+    if (staticMembersInjectionMethod != null) {
+      staticInjectBuilder.addCode(
+          "$N(component, $N.get(instance.getClass()), instance);\n" +
+          "return instance;\n",
+          staticMembersInjectionMethod, MEMBERS_INJECTION_INDEX);
+    } else {
+      staticInjectBuilder.addCode(throwIllegalArgumentException);
+    }
+    classBuilder.addMethod(staticInjectBuilder.build());
+
+    List<List<Integer>> warmUpLayers = keyNamesByIndex == null
+        ? Collections.<List<Integer>>emptyList()
+        : new WarmUpPlanner(processingEnv.getTypeUtils(), provisionMethods).layers();
+    if (!warmUpLayers.isEmpty()) {
+      // Scoped bindings of each layer only depend on scoped bindings of previous layers, so they can be provided in
+      // parallel
+      CodeBlock.Builder layers = CodeBlock.builder();
+      for (List<Integer> layer : warmUpLayers) {
+        List<String> keys = new ArrayList<>();
+        for (int index : layer) {
+          keys.add("Keys." + keyNamesByIndex.get(index));
+        }
+        layers.add(",\n$>$>new $T<?>[] { $L }$<$<", BINDING_KEY, Joiner.on(", ").join(keys));
+      }
+      classBuilder.addMethod(MethodSpec.methodBuilder("warmUp")
+          .addModifiers(PUBLIC)
+          .addParameter(Executor.class, "executor", FINAL)
+          .addCode("$T.run(this, executor$L);\n", WARM_UP, layers.build())
+          .build());
+    }
+
+    // Object graphs for subcomponents, delegating to this one whatever they cannot provide or inject themselves
+    for (ExecutableElement method : subcomponentMethods) {
+      ExecutableType resolvedMethod = MoreTypes.asExecutable(processingEnv.getTypeUtils().asMemberOf(component, method));
+      ClassName subcomponentGraphName = graphName(ClassName.get(MoreTypes.asTypeElement(resolvedMethod.getReturnType())));
+      MethodSpec.Builder factoryBuilder = MethodSpec.methodBuilder(method.getSimpleName().toString())
+          .addModifiers(PUBLIC)
+          .returns(subcomponentGraphName);
+      List<String> arguments = new ArrayList<>();
+      for (int i = 0; i < method.getParameters().size(); i++) {
+        String name = method.getParameters().get(i).getSimpleName().toString();
+        factoryBuilder.addParameter(TypeNames.get(resolvedMethod.getParameterTypes().get(i)), name, FINAL);
+        arguments.add(name);
+      }
+      classBuilder.addMethod(factoryBuilder
+          .addCode("return new $T(this.component.$N($L), this);\n",
+              subcomponentGraphName, method.getSimpleName().toString(), Joiner.on(", ").join(arguments))
+          .build());
+    }
+
+    if (provisionMethod != null) {
+      classBuilder.addMethod(provisionMethod);
+      classBuilder.addMethod(staticProvisionMethod);
+      classBuilder.addMethod(provisionIndexMethod);
+    }
+    if (keyProvisionIndexMethod != null) {
+      classBuilder.addMethod(keyProvisionIndexMethod);
+    }
+    if (membersInjectionMethod != null) {
+      classBuilder.addMethod(membersInjectionMethod);
+      classBuilder.addMethod(staticMembersInjectionMethod);
+    }
+
+    handles.addAccessors();
+
+    writeTo(elementName.packageName(), classBuilder.build());
+  }
+
+  /**
+   * Generates an {@code AsyncObjectGraph} for a production component, dispatching to its methods returning a
+   * {@code ListenableFuture}. As with {@code get(Class)} in object graphs, only the first unqualified method for a
+   * given raw type is reachable.
+   */
+  private void generateAsyncObjectGraph(TypeElement element) {
+    DeclaredType component = MoreTypes.asDeclared(element.asType());
+    Types types = processingEnv.getTypeUtils();
+    List<ExecutableElement> productionMethods = new ArrayList<>();
+    List<TypeMirror> producedTypes = new ArrayList<>();
+
+    PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(element);
+    TypeElement objectElement = processingEnv.getElementUtils().getTypeElement(Object.class.getCanonicalName());
+    for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(element))) {
+      if (method.getEnclosingElement().equals(objectElement) || !isVisibleFrom(method, packageElement)) {
+        continue;
+      }
+      ExecutableType resolvedMethod = MoreTypes.asExecutable(types.asMemberOf(component, method));
+      TypeMirror returnType = resolvedMethod.getReturnType();
+      if (!resolvedMethod.getParameterTypes().isEmpty()
+          || !isListenableFuture(returnType)
+          || !AnnotationMirrors.getAnnotatedAnnotations(method, Qualifier.class).isEmpty()) {
+        continue;
+      }
+      TypeMirror producedType = types.erasure(MoreTypes.asDeclared(returnType).getTypeArguments().get(0));
+      if (producedType.getKind() != TypeKind.DECLARED
+          || !isVisibleFrom(types.asElement(producedType), packageElement)
+          || containsSameType(producedTypes, producedType)) {
+        continue;
+      }
+      productionMethods.add(method);
+      producedTypes.add(producedType);
+    }
+
+    final ClassName elementName = ClassName.get(element);
+    final ClassName graphName = graphName(elementName);
+    final TypeSpec.Builder classBuilder = TypeSpec.classBuilder(graphName.simpleName())
+        .addOriginatingElement(element)
+        .addAnnotation(AnnotationSpec.builder(Generated.class)
+            .addMember("value", "$S", ComponentProcessor.class.getCanonicalName())
+            .build())
+        .addModifiers(PUBLIC, FINAL)
+        .addSuperinterface(ASYNC_OBJECT_GRAPH)
+
+        .addField(elementName, "component", PRIVATE, FINAL)
+
+        .addMethod(MethodSpec.constructorBuilder()
+            .addModifiers(PUBLIC)
+            .addParameter(elementName, "component", FINAL)
+            .addCode("this.component = component;\n")
+            .build());
+
+    TypeVariableName t = TypeVariableName.get("T");
+    MethodSpec.Builder getBuilder = MethodSpec.methodBuilder("get")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addTypeVariable(t)
+        .returns(ParameterizedTypeName.get(LISTENABLE_FUTURE, t))
+        .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), t), "type", FINAL);
+    MethodSpec.Builder canProduceBuilder = MethodSpec.methodBuilder("canProduce")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addParameter(WILDCARD_CLASS, "type", FINAL);
+    MethodSpec productionMethod = null;
+    if (productionMethods.isEmpty()) {
+      getBuilder.addCode("throw new $T();\n", IllegalArgumentException.class);
+      canProduceBuilder.addCode("return false;\n");
+    } else {
+      // Same as provisions in object graphs: resolve the requested type to an index once per class, then dispatch
+      final TypeSpec.Builder classValueBuilder = classValueBuilder();
+      final MethodSpec.Builder computeValueBuilder = computeValueBuilder();
+      List<CodeBlock> indexCases = new ArrayList<>(productionMethods.size());
+      List<CodeBlock> productionCases = new ArrayList<>(productionMethods.size());
+      for (int index = 0; index < productionMethods.size(); index++) {
+        indexCases.add(deferClassLoading
+            ? nameCase(producedTypes.get(index), index)
+            : CodeBlock.builder()
+                .add(
+                    "if (type == $T.class) {\n$>" +
+                    "return $L;\n" +
+                    "$<}\n",
+                    producedTypes.get(index), index)
+                .build());
+        productionCases.add(CodeBlock.builder()
+            .add("return this.component.$N();\n", productionMethods.get(index).getSimpleName().toString())
+            .build());
+      }
+      addIndexCases(classValueBuilder, computeValueBuilder, indexCases);
+      computeValueBuilder.addCode("return -1;\n");
+      classBuilder.addField(classValueIndex(PRODUCTION_INDEX, classValueBuilder, computeValueBuilder));
 
+      final TypeName wildcardListenableFuture =
+          ParameterizedTypeName.get(LISTENABLE_FUTURE, WildcardTypeName.subtypeOf(Object.class));
+      final MethodSpec productionSignature = MethodSpec.methodBuilder("production")
+          .returns(wildcardListenableFuture)
+          .addParameter(TypeName.INT, "index", FINAL)
+          .build();
+      final MethodSpec.Builder productionBuilder = MethodSpec.methodBuilder("production")
+          .addModifiers(PRIVATE)
+          .returns(wildcardListenableFuture)
+          .addParameter(productionSignature.parameters.get(0));
+      splitter.addSwitch(classBuilder, productionSignature, productionBuilder,
+          productionCases, PROVISION_CASE_SIZE, CodeBlock.builder()
+              .add("throw new $T();\n", IllegalArgumentException.class)
+              .build());
+      productionMethod = productionBuilder.build();
+
+      getBuilder
+          .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+              .addMember("value", "$S", "unchecked")
+              .build())
+          .addCode("return ($T) this.$N($N.get(type));\n",
+              ParameterizedTypeName.get(LISTENABLE_FUTURE, t), productionMethod, PRODUCTION_INDEX);
+      canProduceBuilder.addCode("return $N.get(type) >= 0;\n", PRODUCTION_INDEX);
+    }
+    classBuilder.addMethod(getBuilder.build());
+    classBuilder.addMethod(canProduceBuilder.build());
+    if (productionMethod != null) {
+      classBuilder.addMethod(productionMethod);
+    }
+
+    writeTo(elementName.packageName(), classBuilder.build());
+  }
+
+  private void writeTo(String packageName, TypeSpec type) {
     try {
-      JavaFile.builder(elementName.packageName(), classBuilder.build())
+      JavaFile.builder(packageName, type)
           .build()
           .writeTo(processingEnv.getFiler());
     } catch (IOException ioe) {
       StringWriter sw = new StringWriter();
       PrintWriter pw = new PrintWriter(sw);
-      pw.println("Error generating source file for type " + classBuilder.build().name);
+      pw.println("Error generating source file for type " + type.name);
       ioe.printStackTrace(pw);
       pw.close();
       processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, sw.toString());
     }
   }
 
+  /**
+   * Adds the {@code get}, {@code provider}, {@code tryGet} and {@code canProvide} methods taking a {@code parameterType}
+   * argument, resolved to the index of a provision method by the {@code index} expression; {@code cast} is the format
+   * of an expression casting its argument to {@code T}, and {@code uncheckedCast} tells whether it is unchecked.
+   * Misses are delegated to the parent object graph.
+   */
+  private static void addLookupMethods(TypeSpec.Builder classBuilder, ClassName parameterType, String parameter,
+      CodeBlock index, String cast, boolean uncheckedCast, MethodSpec provisionMethod) {
+    TypeVariableName t = TypeVariableName.get("T");
+    MethodSpec.Builder getBuilder = MethodSpec.methodBuilder("get")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addTypeVariable(t)
+        .returns(t)
+        .addParameter(ParameterizedTypeName.get(parameterType, t), parameter, FINAL);
+    MethodSpec.Builder providerBuilder = MethodSpec.methodBuilder("provider")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addTypeVariable(t)
+        .returns(ParameterizedTypeName.get(ClassName.get(Provider.class), t))
+        .addParameter(ParameterizedTypeName.get(parameterType, t), parameter, FINAL);
+    MethodSpec.Builder tryGetBuilder = MethodSpec.methodBuilder("tryGet")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addTypeVariable(t)
+        .returns(t)
+        .addParameter(ParameterizedTypeName.get(parameterType, t), parameter, FINAL);
+    MethodSpec.Builder canProvideBuilder = MethodSpec.methodBuilder("canProvide")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addParameter(ParameterizedTypeName.get(parameterType, WildcardTypeName.subtypeOf(Object.class)), parameter, FINAL);
+    MethodSpec.Builder providerGetBuilder = MethodSpec.methodBuilder("get")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(t);
+    if (provisionMethod != null && uncheckedCast) {
+      AnnotationSpec suppressUnchecked = AnnotationSpec.builder(SuppressWarnings.class)
+          .addMember("value", "$S", "unchecked")
+          .build();
+      getBuilder.addAnnotation(suppressUnchecked);
+      providerGetBuilder.addAnnotation(suppressUnchecked);
+      tryGetBuilder.addAnnotation(suppressUnchecked);
+    }
+    if (provisionMethod != null) {
+      getBuilder.addCode(
+          "final int index = $L;\n" +
+          "if (index < 0) {\n$>" +
+          "$L" +
+          "$<}\n" +
+          "return $L;\n",
+          index, miss("get", parameter),
+          CodeBlock.builder().add(cast, CodeBlock.builder().add("this.$N(index)", provisionMethod).build()).build());
+      // The returned provider dispatches straight to the provision method, without looking the type up again.
+      providerBuilder.addCode(
+          "final int index = $L;\n" +
+          "if (index < 0) {\n$>" +
+          "$L" +
+          "$<}\n" +
+          "return $L;\n",
+          index, miss("provider", parameter),
+          TypeSpec.anonymousClassBuilder("")
+              .superclass(ParameterizedTypeName.get(ClassName.get(Provider.class), t))
+              .addMethod(providerGetBuilder
+                  .addCode("return $L;\n",
+                      CodeBlock.builder().add(cast, CodeBlock.builder().add("$N(index)", provisionMethod).build()).build())
+                  .build())
+              .build());
+      tryGetBuilder.addCode(
+          "final int index = $L;\n" +
+          "if (index < 0) {\n$>" +
+          "$L" +
+          "$<}\n" +
+          "return $L;\n",
+          index, miss("tryGet", parameter),
+          CodeBlock.builder().add(cast, CodeBlock.builder().add("this.$N(index)", provisionMethod).build()).build());
+      canProvideBuilder.addCode("return $L >= 0 || this.parent.canProvide($N);\n", index, parameter);
+    } else {
+      getBuilder.addCode(miss("get", parameter));
+      providerBuilder.addCode(miss("provider", parameter));
+      tryGetBuilder.addCode(miss("tryGet", parameter));
+      canProvideBuilder.addCode(miss("canProvide", parameter));
+    }
+    classBuilder.addMethod(getBuilder.build());
+    classBuilder.addMethod(providerBuilder.build());
+    classBuilder.addMethod(tryGetBuilder.build());
+    classBuilder.addMethod(canProvideBuilder.build());
+  }
+
+  /**
+   * Adds a method returning the {@code primitiveType} value for a {@code bullet.Key} of its boxed type, calling the
+   * component method directly (rather than through the {@code provision} method, which returns an {@code Object}) so
+   * that primitive component methods are never boxed.
+   */
+  private void addPrimitiveAccessor(TypeSpec.Builder classBuilder, String name, TypeName primitiveType,
+      Class<?> boxedClass, List<ComponentMethodDescriptor> provisionMethods, MethodSpec provisionIndexMethod,
+      HandleCache handles) {
+    MethodSpec.Builder accessorBuilder = MethodSpec.methodBuilder(name)
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(primitiveType)
+        .addParameter(ParameterizedTypeName.get(KEY, ClassName.get(boxedClass)), "key", FINAL);
+    SortedMap<Integer, CodeBlock> cases = new TreeMap<>();
+    for (int index = 0; index < provisionMethods.size(); index++) {
+      ComponentMethodDescriptor method = provisionMethods.get(index);
+      if (MoreTypes.isTypeOf(boxedClass, method.type())) {
+        cases.put(index, CodeBlock.builder().add("return $L;\n", handles.provision(method)).build());
+      }
+    }
+    if (!cases.isEmpty()) {
+      MethodSpec signature = MethodSpec.methodBuilder(name)
+          .returns(primitiveType)
+          .addParameter(TypeName.INT, "index", FINAL)
+          .addParameter(ParameterizedTypeName.get(KEY, ClassName.get(boxedClass)), "key", FINAL)
+          .build();
+      accessorBuilder.addCode("final int index = this.$N(key);\n", provisionIndexMethod);
+      splitter.addSwitch(classBuilder, signature, accessorBuilder, cases, PROVISION_CASE_SIZE, miss(name, "key"));
+    } else {
+      accessorBuilder.addCode(miss(name, "key"));
+    }
+    classBuilder.addMethod(accessorBuilder.build());
+  }
+
+  /** Returns the code handling a miss of the {@code method} called with {@code argument}, delegating to the parent. */
+  private static CodeBlock miss(String method, String argument) {
+    return CodeBlock.builder()
+        .add("return this.parent.$N($N);\n", method, argument)
+        .build();
+  }
+
+  /**
+   * Generates fields caching the {@link javax.inject.Provider} and {@link dagger.MembersInjector} returned by component
+   * methods, along with their (lazily-initialized, thread-safe) accessor methods.
+   *
+   * <p>{@link dagger.Lazy} instances aren't cached: each one memoizes its value, and Dagger returns a new one on each
+   * call, so caching it would make the object graph return the same instance of an unscoped binding for its whole
+   * lifetime.
+   */
+  private static class HandleCache {
+    private final TypeSpec.Builder classBuilder;
+    private final Set<String> names = Sets.newHashSet("component", "parent", "injectedInstances");
+    private final Map<String, String> accessorsByComponentMethod = new LinkedHashMap<>();
+    private final List<MethodSpec> accessors = new ArrayList<>();
+
+    HandleCache(TypeSpec.Builder classBuilder) {
+      this.classBuilder = classBuilder;
+    }
+
+    /** Returns an expression that provides an instance through the given method. */
+    CodeBlock provision(ComponentMethodDescriptor method) {
+      if (!method.handleType().isPresent()) {
+        return CodeBlock.builder().add("this.component.$N()", method.name()).build();
+      }
+      if (method.kind() == ComponentMethodDescriptor.ComponentMethodKind.LAZY) {
+        return CodeBlock.builder().add("this.component.$N().get()", method.name()).build();
+      }
+      return CodeBlock.builder().add("this.$N().get()", handle(method)).build();
+    }
+
+    /** Returns an expression that injects the members of {@code instance} through the given method. */
+    CodeBlock membersInjection(ComponentMethodDescriptor method, CodeBlock instance) {
+      if (!method.handleType().isPresent()) {
+        return CodeBlock.builder().add("this.component.$N($L)", method.name(), instance).build();
+      }
+      return CodeBlock.builder().add("this.$N().injectMembers($L)", handle(method), instance).build();
+    }
+
+    /** Same as {@link #provision}, calling the method on a {@code component} variable, without caching handles. */
+    static CodeBlock staticProvision(ComponentMethodDescriptor method) {
+      if (!method.handleType().isPresent()) {
+        return CodeBlock.builder().add("component.$N()", method.name()).build();
+      }
+      return CodeBlock.builder().add("component.$N().get()", method.name()).build();
+    }
+
+    /** Same as {@link #membersInjection}, calling the method on a {@code component} variable, without caching handles. */
+    static CodeBlock staticMembersInjection(ComponentMethodDescriptor method, CodeBlock instance) {
+      if (!method.handleType().isPresent()) {
+        return CodeBlock.builder().add("component.$N($L)", method.name(), instance).build();
+      }
+      return CodeBlock.builder().add("component.$N().injectMembers($L)", method.name(), instance).build();
+    }
+
+    private String handle(ComponentMethodDescriptor method) {
+      String name = accessorsByComponentMethod.get(method.name());
+      if (name != null) {
+        return name;
+      }
+      name = method.name();
+      for (int i = 2; !names.add(name); i++) {
+        name = method.name() + i;
+      }
+      accessorsByComponentMethod.put(method.name(), name);
+
+      TypeName handleType = method.handleType().get();
+      classBuilder.addField(handleType, name, PRIVATE, VOLATILE);
+      accessors.add(MethodSpec.methodBuilder(name)
+          .addModifiers(PRIVATE)
+          .returns(handleType)
+          .addCode(
+              "$T result = this.$N;\n" +
+              "if (result == null) {\n$>" +
+              "synchronized (this) {\n$>" +
+              "result = this.$N;\n" +
+              "if (result == null) {\n$>" +
+              "this.$N = result = this.component.$N();\n" +
+              "$<}\n" +
+              "$<}\n" +
+              "$<}\n" +
+              "return result;\n",
+              handleType, name, name, name, method.name())
+          .build());
+      return name;
+    }
+
+    void addAccessors() {
+      for (MethodSpec accessor : accessors) {
+        classBuilder.addMethod(accessor);
+      }
+    }
+  }
+
+  private static TypeSpec.Builder classValueBuilder() {
+    return TypeSpec.anonymousClassBuilder("")
+        .superclass(CLASS_VALUE_OF_INTEGER);
+  }
+
+  private static MethodSpec.Builder computeValueBuilder() {
+    return MethodSpec.methodBuilder("computeValue")
+        .addAnnotation(Override.class)
+        .addModifiers(PROTECTED)
+        .returns(Integer.class)
+        .addParameter(WILDCARD_CLASS, "type", FINAL);
+  }
+
+  private void addIndexCases(TypeSpec.Builder classValueBuilder, MethodSpec.Builder computeValueBuilder, List<CodeBlock> cases) {
+    MethodSpec signature = MethodSpec.methodBuilder("computeValue")
+        .addParameter(WILDCARD_CLASS, "type", FINAL)
+        .build();
+    if (deferClassLoading) {
+      splitter.addChain(classValueBuilder, signature, computeValueBuilder,
+          CodeBlock.builder().add("switch (type.getName()) {\n$>").build(),
+          cases,
+          CodeBlock.builder().add("$<}\n").build(),
+          NAME_CASE_SIZE);
+    } else {
+      CodeBlock empty = CodeBlock.builder().build();
+      splitter.addChain(classValueBuilder, signature, computeValueBuilder, empty, cases, empty, CLASS_CASE_SIZE);
+    }
+  }
+
+  /**
+   * Groups the methods reachable through a {@code bullet.Key} by the canonical name of their type, each group being a
+   * {@code case} of a {@code switch} over {@link bullet.Key#getTypeName()}; within a group, the first method for a
+   * given qualifier wins. The qualifier checks of a group too large to fit in a method are moved to their own (split)
+   * helper method.
+   */
+  private class KeyCases {
+    private final Map<String, TypeMirror> rawTypes = new LinkedHashMap<>();
+    private final Map<String, List<ComponentMethodDescriptor>> methods = new LinkedHashMap<>();
+    private final Map<String, List<CodeBlock>> cases = new LinkedHashMap<>();
+
+    void add(String typeName, ComponentMethodDescriptor method, int index) {
+      List<ComponentMethodDescriptor> methodsForName = methods.get(typeName);
+      if (methodsForName == null) {
+        methodsForName = new ArrayList<>();
+        methods.put(typeName, methodsForName);
+        rawTypes.put(typeName, processingEnv.getTypeUtils().erasure(method.type()));
+        cases.put(typeName, new ArrayList<CodeBlock>());
+      }
+      for (ComponentMethodDescriptor other : methodsForName) {
+        if (AnnotationMirrors.equivalence().equivalent(other.qualifier().orNull(), method.qualifier().orNull())) {
+          return;
+        }
+      }
+      methodsForName.add(method);
+      cases.get(typeName).add(qualifierCase(method, index));
+    }
+
+    boolean isEmpty() {
+      return cases.isEmpty();
+    }
+
+    void addTo(TypeSpec.Builder classBuilder, MethodSpec signature, MethodSpec.Builder method) {
+      List<CodeBlock> typeCases = new ArrayList<>(cases.size());
+      List<Integer> typeCaseSizes = new ArrayList<>(cases.size());
+      for (Map.Entry<String, List<CodeBlock>> entry : cases.entrySet()) {
+        List<CodeBlock> qualifierCases = entry.getValue();
+        CodeBlock.Builder typeCase = CodeBlock.builder()
+            .add(
+                "case $S:\n$>" +
+                "if (key.getRawType() == $T.class) {\n$>",
+                entry.getKey(), rawTypes.get(entry.getKey()));
+        int size = KEY_CASE_SIZE + qualifierCases.size() * QUALIFIER_CASE_SIZE;
+        if (splitter.fits(size)) {
+          for (CodeBlock qualifierCase : qualifierCases) {
+            typeCase.add(qualifierCase);
+          }
+        } else {
+          String name = methods.get(entry.getKey()).get(0).name() + "KeyProvisionIndex";
+          MethodSpec helperSignature = MethodSpec.methodBuilder(name)
+              .addParameter(signature.parameters.get(0))
+              .build();
+          MethodSpec.Builder helper = MethodSpec.methodBuilder(name)
+              .addModifiers(PRIVATE)
+              .returns(TypeName.INT)
+              .addParameter(signature.parameters.get(0));
+          CodeBlock empty = CodeBlock.builder().build();
+          splitter.addChain(classBuilder, helperSignature, helper, empty, qualifierCases, empty, QUALIFIER_CASE_SIZE);
+          helper.addCode("return -1;\n");
+          MethodSpec helperMethod = helper.build();
+          classBuilder.addMethod(helperMethod);
+          typeCase.add("return this.$N(key);\n", helperMethod);
+          size = KEY_CASE_SIZE;
+        }
+        typeCases.add(typeCase
+            .add(
+                "$<}\n" +
+                "break;\n$<")
+            .build());
+        typeCaseSizes.add(size);
+      }
+      splitter.addChain(classBuilder, signature, method,
+          CodeBlock.builder().add("switch (key.getTypeName()) {\n$>").build(),
+          typeCases,
+          CodeBlock.builder().add("$<}\n").build(),
+          typeCaseSizes);
+    }
+
+    private CodeBlock qualifierCase(ComponentMethodDescriptor method, int index) {
+      if (!method.qualifier().isPresent()) {
+        return CodeBlock.builder()
+            .add(
+                "if (key.getQualifierType() == null) {\n$>" +
+                "return $L;\n" +
+                "$<}\n",
+                index)
+            .build();
+      }
+      AnnotationMirror qualifier = method.qualifier().get();
+      List<CodeBlock> comparisons = qualifierMatcher.attributeComparisons(qualifier, "qualifier").get();
+      CodeBlock.Builder qualifierCase = CodeBlock.builder()
+          .add("if (key.getQualifierType() == $T.class) {\n$>", qualifier.getAnnotationType());
+      if (comparisons.isEmpty()) {
+        qualifierCase.add("return $L;\n", index);
+      } else {
+        qualifierCase.add("$T qualifier = ($T) key.getQualifier();\n", qualifier.getAnnotationType(), qualifier.getAnnotationType())
+            .add("if (");
+        for (int i = 0; i < comparisons.size(); i++) {
+          qualifierCase.add(i == 0 ? "$L" : "\n    && $L", comparisons.get(i));
+        }
+        qualifierCase.add(") {\n$>")
+            .add("return $L;\n", index)
+            .add("$<}\n");
+      }
+      return qualifierCase.add("$<}\n").build();
+    }
+  }
+
+  /**
+   * Returns the canonical name of the type, as computed at runtime by {@code bullet.Key#getTypeName()}, or absent if
+   * the type cannot be represented by a key (i.e. contains type variables).
+   */
+  private Optional<String> typeName(TypeMirror type) {
+    switch (type.getKind()) {
+      case DECLARED: {
+        DeclaredType declaredType = MoreTypes.asDeclared(type);
+        TypeElement typeElement = MoreElements.asType(declaredType.asElement());
+        StringBuilder sb = new StringBuilder();
+        TypeMirror enclosingType = declaredType.getEnclosingType();
+        if (enclosingType.getKind() == TypeKind.DECLARED
+            && !MoreTypes.asDeclared(enclosingType).getTypeArguments().isEmpty()) {
+          // Inner class of a parameterized type
+          Optional<String> enclosingTypeName = typeName(enclosingType);
+          if (!enclosingTypeName.isPresent()) {
+            return Optional.absent();
+          }
+          sb.append(enclosingTypeName.get()).append('$').append(typeElement.getSimpleName());
+        } else {
+          sb.append(processingEnv.getElementUtils().getBinaryName(typeElement));
+        }
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        for (int i = 0; i < typeArguments.size(); i++) {
+          Optional<String> typeArgumentName = typeName(typeArguments.get(i));
+          if (!typeArgumentName.isPresent()) {
+            return Optional.absent();
+          }
+          sb.append(i == 0 ? "<" : ", ").append(typeArgumentName.get());
+        }
+        return Optional.of(typeArguments.isEmpty() ? sb.toString() : sb.append('>').toString());
+      }
+      case ARRAY: {
+        Optional<String> componentTypeName = typeName(MoreTypes.asArray(type).getComponentType());
+        return componentTypeName.isPresent() ? Optional.of(componentTypeName.get() + "[]") : componentTypeName;
+      }
+      case WILDCARD: {
+        WildcardType wildcardType = (WildcardType) type;
+        if (wildcardType.getSuperBound() != null) {
+          Optional<String> boundName = typeName(wildcardType.getSuperBound());
+          return boundName.isPresent() ? Optional.of("? super " + boundName.get()) : boundName;
+        }
+        if (wildcardType.getExtendsBound() != null && !MoreTypes.isTypeOf(Object.class, wildcardType.getExtendsBound())) {
+          Optional<String> boundName = typeName(wildcardType.getExtendsBound());
+          return boundName.isPresent() ? Optional.of("? extends " + boundName.get()) : boundName;
+        }
+        return Optional.of("?");
+      }
+      default:
+        if (type.getKind().isPrimitive()) {
+          return Optional.of(type.toString());
+        }
+        return Optional.absent();
+    }
+  }
+
+  /**
+   * Matches the class by name before comparing it to a class literal, so that only the class being looked up is
+   * ever loaded (the comparison is still needed in case the same class name is loaded by several class loaders).
+   */
+  private CodeBlock nameCase(TypeMirror type, int index) {
+    TypeElement typeElement = MoreElements.asType(processingEnv.getTypeUtils().asElement(type));
+    return CodeBlock.builder()
+        .add(
+            "case $S:\n$>" +
+            "if (type == $T.class) {\n$>" +
+            "return $L;\n" +
+            "$<}\n" +
+            "break;\n$<",
+            processingEnv.getElementUtils().getBinaryName(typeElement), ClassName.get(typeElement), index)
+        .build();
+  }
+
+  private static FieldSpec classValueIndex(String name, TypeSpec.Builder classValueBuilder, MethodSpec.Builder computeValueBuilder) {
+    return FieldSpec.builder(CLASS_VALUE_OF_INTEGER, name, PRIVATE, STATIC, FINAL)
+        .initializer("$L", classValueBuilder
+            .addMethod(computeValueBuilder.build())
+            .build())
+        .build();
+  }
+
+  private boolean hasProvisionMethodForKey(List<ComponentMethodDescriptor> provisionMethods, ComponentMethodDescriptor candidate) {
+    // Only the first method for a given type and qualifier is reachable through get()
+    Types types = processingEnv.getTypeUtils();
+    for (ComponentMethodDescriptor method : provisionMethods) {
+      if (types.isSameType(method.type(), candidate.type())
+          && AnnotationMirrors.equivalence().equivalent(method.qualifier().orNull(), candidate.qualifier().orNull())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean containsSameType(List<TypeMirror> types, TypeMirror type) {
+    for (TypeMirror t : types) {
+      if (processingEnv.getTypeUtils().isSameType(t, type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isSubcomponentMethod(DeclaredType component, ExecutableElement method, PackageElement packageElement) {
+    TypeMirror returnType = MoreTypes.asExecutable(processingEnv.getTypeUtils().asMemberOf(component, method)).getReturnType();
+    if (returnType.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement returnElement = MoreTypes.asTypeElement(returnType);
+    return MoreElements.isAnnotationPresent(returnElement, Subcomponent.class) && isVisibleFrom(returnElement, packageElement);
+  }
+
+  private static boolean isListenableFuture(TypeMirror type) {
+    return type.getKind() == TypeKind.DECLARED
+        && MoreTypes.asTypeElement(type).getQualifiedName().contentEquals(
+            LISTENABLE_FUTURE.packageName() + "." + LISTENABLE_FUTURE.simpleName());
+  }
+
+  private static ClassName graphName(ClassName componentName) {
+    return ClassName.get(componentName.packageName(), "Bullet" + Joiner.on("_").join(componentName.simpleNames()));
+  }
+
   private boolean isVisibleFrom(Element target, PackageElement from) {
     switch (Visibility.effectiveVisibilityOfElement(target)) {
       case PUBLIC:
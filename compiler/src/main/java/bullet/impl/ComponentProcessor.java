@@ -1,16 +1,36 @@
 package bullet.impl;
 
 import java.util.Collections;
+import java.util.Set;
 
 import javax.annotation.processing.Processor;
 import javax.lang.model.SourceVersion;
 
 import com.google.auto.common.BasicAnnotationProcessor;
 import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableSet;
 
 @AutoService(Processor.class)
 public class ComponentProcessor extends BasicAnnotationProcessor {
 
+  /**
+   * When {@code true}, generated object graphs look types up by name so that only the requested class
+   * and the one it resolves to are ever loaded, rather than every class in the dispatch chain.
+   */
+  static final String DEFER_CLASS_LOADING_OPTION = "bullet.deferClassLoading";
+
+  /**
+   * When {@code true}, generated object graphs remember (through weak references) the instances they injected, and
+   * injecting the same instance again returns immediately, be it through {@code inject}, {@code membersInjector} or
+   * {@code injectAll}. The static {@code inject(component, instance)} method doesn't remember instances.
+   */
+  static final String IDEMPOTENT_INJECT_OPTION = "bullet.idempotentInject";
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return ImmutableSet.of(DEFER_CLASS_LOADING_OPTION, IDEMPOTENT_INJECT_OPTION);
+  }
+
   @Override
   public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.latestSupported();
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet.impl;
+
+import static javax.lang.model.element.Modifier.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.base.Joiner;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+/**
+ * Generates code whose size grows with the number of component methods, splitting it into helper methods
+ * when needed so that no generated method goes over HotSpot's {@code HugeMethodLimit} (8000 bytes of bytecode),
+ * above which methods are never JIT-compiled.
+ *
+ * <p>The size of the generated code is estimated from the (approximate) bytecode size of each case, as given by
+ * the caller.
+ */
+class MethodSplitter {
+  /** Well below {@code HugeMethodLimit}, to leave room for estimation errors. */
+  static final int DEFAULT_MAX_METHOD_SIZE = 2000;
+
+  private final int maxMethodSize;
+
+  MethodSplitter(int maxMethodSize) {
+    this.maxMethodSize = maxMethodSize;
+  }
+
+  /**
+   * Adds a {@code switch} statement over the method's {@code index} parameter, where the case at position {@code i}
+   * in {@code cases} is the code for {@code case i}, and each case ends with a {@code return} or {@code throw}
+   * statement.
+   *
+   * <p>When split, the top-level switch is over {@code index} divided by the number of cases per helper method,
+   * each helper method being a copy of {@code signature} (static if {@code signature} is).
+   */
+  void addSwitch(TypeSpec.Builder classBuilder, MethodSpec signature, MethodSpec.Builder method,
+      List<CodeBlock> cases, int caseSize, CodeBlock defaultCase) {
+    SortedMap<Integer, CodeBlock> indexedCases = new TreeMap<>();
+    for (int i = 0; i < cases.size(); i++) {
+      indexedCases.put(i, cases.get(i));
+    }
+    addSwitch(classBuilder, signature, method, indexedCases, caseSize, defaultCase);
+  }
+
+  /**
+   * Same as {@link #addSwitch(TypeSpec.Builder, MethodSpec, MethodSpec.Builder, List, int, CodeBlock)} for sparse
+   * cases, where {@code cases} maps each {@code index} to the code for its {@code case}; other indices go to the
+   * default case.
+   *
+   * <p>When split, each helper method covers a range of indices, whether they all have a case or not, and helper
+   * methods for ranges without any case are omitted.
+   */
+  void addSwitch(TypeSpec.Builder classBuilder, MethodSpec signature, MethodSpec.Builder method,
+      SortedMap<Integer, CodeBlock> cases, int caseSize, CodeBlock defaultCase) {
+    int casesPerMethod = casesPerMethod(caseSize);
+    if (cases.size() <= casesPerMethod) {
+      method.addCode(switchStatement("index", cases, defaultCase));
+      return;
+    }
+    CodeBlock.Builder chunks = CodeBlock.builder();
+    for (int chunk = 0; chunk <= cases.lastKey() / casesPerMethod; chunk++) {
+      SortedMap<Integer, CodeBlock> chunkCases = cases.subMap(chunk * casesPerMethod, (chunk + 1) * casesPerMethod);
+      if (chunkCases.isEmpty()) {
+        continue;
+      }
+      MethodSpec helper = helperMethod(signature, chunk)
+          .addCode(switchStatement("index", chunkCases, defaultCase))
+          .build();
+      classBuilder.addMethod(helper);
+      if (signature.returnType.equals(TypeName.VOID)) {
+        chunks.add(
+            "case $L:\n$>" +
+            "$N$L;\n" +
+            "return;\n$<",
+            chunk, helper, helperArguments(signature));
+      } else {
+        chunks.add(
+            "case $L:\n$>" +
+            "return $N$L;\n$<",
+            chunk, helper, helperArguments(signature));
+      }
+    }
+    method.addCode(switchStatement("index / " + casesPerMethod, chunks.build(), defaultCase));
+  }
+
+  /**
+   * Adds a sequence of statements, each of which might {@code return} a non-negative {@code int}, wrapped between
+   * {@code prefix} and {@code suffix}.
+   *
+   * <p>When split, each helper method is a copy of {@code signature} returning an {@code int} and wrapping its
+   * share of the cases between {@code prefix} and {@code suffix}, then returning {@code -1}. The method then
+   * returns the first non-negative value returned by the helper methods, if any. Note that in this case, the method
+   * declares an {@code int match} local variable.
+   */
+  void addChain(TypeSpec.Builder classBuilder, MethodSpec signature, MethodSpec.Builder method,
+      CodeBlock prefix, List<CodeBlock> cases, CodeBlock suffix, int caseSize) {
+    addChain(classBuilder, signature, method, prefix, cases, suffix, Collections.nCopies(cases.size(), caseSize));
+  }
+
+  /**
+   * Same as {@link #addChain(TypeSpec.Builder, MethodSpec, MethodSpec.Builder, CodeBlock, List, CodeBlock, int)}
+   * for cases of varying sizes, the case at position {@code i} in {@code cases} having size {@code caseSizes.get(i)}.
+   */
+  void addChain(TypeSpec.Builder classBuilder, MethodSpec signature, MethodSpec.Builder method,
+      CodeBlock prefix, List<CodeBlock> cases, CodeBlock suffix, List<Integer> caseSizes) {
+    List<List<CodeBlock>> chunks = new ArrayList<>();
+    List<CodeBlock> current = new ArrayList<>();
+    int currentSize = 0;
+    for (int i = 0; i < cases.size(); i++) {
+      if (!current.isEmpty() && currentSize + caseSizes.get(i) > maxMethodSize) {
+        chunks.add(current);
+        current = new ArrayList<>();
+        currentSize = 0;
+      }
+      current.add(cases.get(i));
+      currentSize += caseSizes.get(i);
+    }
+    if (chunks.isEmpty()) {
+      method.addCode(prefix);
+      for (CodeBlock c : current) {
+        method.addCode(c);
+      }
+      method.addCode(suffix);
+      return;
+    }
+    chunks.add(current);
+    for (int chunk = 0; chunk < chunks.size(); chunk++) {
+      MethodSpec.Builder helper = helperMethod(signature, chunk)
+          .returns(TypeName.INT)
+          .addCode(prefix);
+      for (CodeBlock c : chunks.get(chunk)) {
+        helper.addCode(c);
+      }
+      helper.addCode(suffix)
+          .addCode("return -1;\n");
+      classBuilder.addMethod(helper.build());
+      if (chunk == 0) {
+        method.addCode("int match = $N$L;\n", helper.build(), helperArguments(signature));
+      } else {
+        method.addCode(
+            "if (match < 0) {\n$>" +
+            "match = $N$L;\n" +
+            "$<}\n",
+            helper.build(), helperArguments(signature));
+      }
+    }
+    method.addCode(
+        "if (match >= 0) {\n$>" +
+        "return match;\n" +
+        "$<}\n");
+  }
+
+  /** Returns whether code of the given estimated size fits in a single method. */
+  boolean fits(int size) {
+    return size <= maxMethodSize;
+  }
+
+  private int casesPerMethod(int caseSize) {
+    return Math.max(1, maxMethodSize / caseSize);
+  }
+
+  private static MethodSpec.Builder helperMethod(MethodSpec signature, int chunk) {
+    MethodSpec.Builder helper = MethodSpec.methodBuilder(signature.name + chunk)
+        .addModifiers(PRIVATE)
+        .returns(signature.returnType);
+    if (signature.modifiers.contains(STATIC)) {
+      helper.addModifiers(STATIC);
+    }
+    for (TypeVariableName typeVariable : signature.typeVariables) {
+      helper.addTypeVariable(typeVariable);
+    }
+    for (ParameterSpec parameter : signature.parameters) {
+      helper.addParameter(parameter);
+    }
+    return helper;
+  }
+
+  private static String helperArguments(MethodSpec signature) {
+    List<String> arguments = new ArrayList<>();
+    for (ParameterSpec parameter : signature.parameters) {
+      arguments.add(parameter.name);
+    }
+    return "(" + Joiner.on(", ").join(arguments) + ")";
+  }
+
+  private static CodeBlock switchStatement(String index, SortedMap<Integer, CodeBlock> cases, CodeBlock defaultCase) {
+    CodeBlock.Builder body = CodeBlock.builder();
+    for (Map.Entry<Integer, CodeBlock> c : cases.entrySet()) {
+      body.add("case $L:\n$>", c.getKey())
+          .add(c.getValue())
+          .add("$<");
+    }
+    return switchStatement(index, body.build(), defaultCase);
+  }
+
+  private static CodeBlock switchStatement(String index, CodeBlock cases, CodeBlock defaultCase) {
+    return CodeBlock.builder()
+        .add("switch ($L) {\n$>", index)
+        .add(cases)
+        .add("default:\n$>")
+        .add(defaultCase)
+        .add("$<$<}\n")
+        .build();
+  }
+}
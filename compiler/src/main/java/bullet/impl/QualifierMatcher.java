@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.SimpleAnnotationValueVisitor7;
+import javax.lang.model.util.Types;
+
+import com.google.auto.common.MoreElements;
+import com.google.auto.common.MoreTypes;
+import com.google.common.base.Optional;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * Generates expressions telling whether a qualifier (e.g. of a {@code bullet.Key}) is equal to a qualifier found on a
+ * component method, comparing each attribute to its literal value (as {@link java.lang.annotation.Annotation#equals}
+ * would do).
+ */
+class QualifierMatcher {
+  private final Elements elements;
+  private final Types types;
+
+  QualifierMatcher(Elements elements, Types types) {
+    this.elements = elements;
+    this.types = types;
+  }
+
+  /**
+   * Returns the expressions comparing each attribute of the {@code variable} annotation (of the same type as
+   * {@code qualifier}) to its value in {@code qualifier}, or absent if some attribute value cannot be written as a
+   * literal (i.e. is an annotation).
+   */
+  Optional<List<CodeBlock>> attributeComparisons(AnnotationMirror qualifier, String variable) {
+    TypeElement qualifierType = MoreElements.asType(qualifier.getAnnotationType().asElement());
+    Map<? extends ExecutableElement, ? extends AnnotationValue> values = elements.getElementValuesWithDefaults(qualifier);
+    List<CodeBlock> comparisons = new ArrayList<>();
+    for (ExecutableElement attribute : ElementFilter.methodsIn(qualifierType.getEnclosedElements())) {
+      CodeBlock accessor = CodeBlock.builder()
+          .add("$N.$N()", variable, attribute.getSimpleName().toString())
+          .build();
+      Optional<CodeBlock> comparison = comparison(attribute.getReturnType(), values.get(attribute), accessor);
+      if (!comparison.isPresent()) {
+        return Optional.absent();
+      }
+      comparisons.add(comparison.get());
+    }
+    return Optional.of(comparisons);
+  }
+
+  private Optional<CodeBlock> comparison(TypeMirror type, AnnotationValue value, CodeBlock accessor) {
+    switch (type.getKind()) {
+      case FLOAT:
+        return Optional.of(CodeBlock.builder()
+            .add("$T.floatToIntBits($L) == $L", Float.class, accessor, Float.floatToIntBits((Float) value.getValue()))
+            .build());
+      case DOUBLE:
+        return Optional.of(CodeBlock.builder()
+            .add("$T.doubleToLongBits($L) == $LL", Double.class, accessor, Double.doubleToLongBits((Double) value.getValue()))
+            .build());
+      case ARRAY: {
+        Optional<CodeBlock> literal = literal(type, value);
+        if (!literal.isPresent()) {
+          return Optional.absent();
+        }
+        return Optional.of(CodeBlock.builder()
+            .add("$T.equals($L, $L)", Arrays.class, accessor, literal.get())
+            .build());
+      }
+      case DECLARED:
+        if (types.isSameType(type, elements.getTypeElement(String.class.getCanonicalName()).asType())) {
+          return Optional.of(CodeBlock.builder().add("$S.equals($L)", value.getValue(), accessor).build());
+        }
+        // fall through: enums and classes are compared by identity, annotations are rejected by literal()
+      default: {
+        Optional<CodeBlock> literal = literal(type, value);
+        if (!literal.isPresent()) {
+          return Optional.absent();
+        }
+        return Optional.of(CodeBlock.builder().add("$L == $L", accessor, literal.get()).build());
+      }
+    }
+  }
+
+  private Optional<CodeBlock> literal(final TypeMirror type, AnnotationValue value) {
+    return value.accept(new SimpleAnnotationValueVisitor7<Optional<CodeBlock>, Void>() {
+      @Override
+      public Optional<CodeBlock> visitBoolean(boolean b, Void p) {
+        return of("$L", b);
+      }
+
+      @Override
+      public Optional<CodeBlock> visitByte(byte b, Void p) {
+        return of("(byte) $L", b);
+      }
+
+      @Override
+      public Optional<CodeBlock> visitChar(char c, Void p) {
+        return of("(char) $L", (int) c);
+      }
+
+      @Override
+      public Optional<CodeBlock> visitShort(short s, Void p) {
+        return of("(short) $L", s);
+      }
+
+      @Override
+      public Optional<CodeBlock> visitInt(int i, Void p) {
+        return of("$L", i);
+      }
+
+      @Override
+      public Optional<CodeBlock> visitLong(long i, Void p) {
+        return of("$LL", i);
+      }
+
+      @Override
+      public Optional<CodeBlock> visitFloat(float f, Void p) {
+        return of("$T.intBitsToFloat($L)", Float.class, Float.floatToIntBits(f));
+      }
+
+      @Override
+      public Optional<CodeBlock> visitDouble(double d, Void p) {
+        return of("$T.longBitsToDouble($LL)", Double.class, Double.doubleToLongBits(d));
+      }
+
+      @Override
+      public Optional<CodeBlock> visitString(String s, Void p) {
+        return of("$S", s);
+      }
+
+      @Override
+      public Optional<CodeBlock> visitType(TypeMirror t, Void p) {
+        return of("$T.class", TypeName.get(types.erasure(t)));
+      }
+
+      @Override
+      public Optional<CodeBlock> visitEnumConstant(VariableElement c, Void p) {
+        return of("$T.$N", ClassName.get(MoreElements.asType(c.getEnclosingElement())), c.getSimpleName().toString());
+      }
+
+      @Override
+      public Optional<CodeBlock> visitArray(List<? extends AnnotationValue> vals, Void p) {
+        TypeMirror componentType = MoreTypes.asArray(type).getComponentType();
+        CodeBlock.Builder array = CodeBlock.builder().add("new $T {", TypeName.get(type));
+        for (int i = 0; i < vals.size(); i++) {
+          Optional<CodeBlock> element = literal(componentType, vals.get(i));
+          if (!element.isPresent()) {
+            return Optional.absent();
+          }
+          array.add(i == 0 ? "$L" : ", $L", element.get());
+        }
+        return Optional.of(array.add("}").build());
+      }
+
+      @Override
+      protected Optional<CodeBlock> defaultAction(Object o, Void p) {
+        // Annotations
+        return Optional.absent();
+      }
+
+      private Optional<CodeBlock> of(String format, Object... args) {
+        return Optional.of(CodeBlock.builder().add(format, args).build());
+      }
+    }, null);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet.impl;
+
+import java.util.List;
+
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+
+import com.google.auto.common.MoreElements;
+import com.google.auto.common.MoreTypes;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
+
+/**
+ * Replaces {@link TypeName#get(TypeMirror)}, which throws a {@link NullPointerException} for wildcard types (including
+ * when they're used as type arguments) in this version of JavaPoet.
+ */
+final class TypeNames {
+  static TypeName get(TypeMirror type) {
+    switch (type.getKind()) {
+      case DECLARED: {
+        DeclaredType declaredType = MoreTypes.asDeclared(type);
+        ClassName rawType = ClassName.get(MoreElements.asType(declaredType.asElement()));
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.isEmpty()) {
+          return rawType;
+        }
+        TypeName[] typeArgumentNames = new TypeName[typeArguments.size()];
+        for (int i = 0; i < typeArgumentNames.length; i++) {
+          typeArgumentNames[i] = get(typeArguments.get(i));
+        }
+        return ParameterizedTypeName.get(rawType, typeArgumentNames);
+      }
+      case ARRAY:
+        return ArrayTypeName.of(get(MoreTypes.asArray(type).getComponentType()));
+      case WILDCARD: {
+        WildcardType wildcardType = (WildcardType) type;
+        if (wildcardType.getSuperBound() != null) {
+          return WildcardTypeName.supertypeOf(get(wildcardType.getSuperBound()));
+        }
+        if (wildcardType.getExtendsBound() != null) {
+          return WildcardTypeName.subtypeOf(get(wildcardType.getExtendsBound()));
+        }
+        return WildcardTypeName.subtypeOf(Object.class);
+      }
+      default:
+        return TypeName.get(type);
+    }
+  }
+
+  private TypeNames() {
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Qualifier;
+import javax.inject.Scope;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+import com.google.auto.common.AnnotationMirrors;
+import com.google.auto.common.MoreElements;
+import com.google.auto.common.MoreTypes;
+import com.google.common.base.Optional;
+
+import dagger.Lazy;
+import dagger.MembersInjector;
+
+/**
+ * Sorts the provision methods of scoped bindings into layers for warm-up, such that the bindings of a layer only depend
+ * on scoped bindings of previous layers, and can thus be provided in parallel.
+ *
+ * <p>Only bindings whose type has a {@linkplain Scope scope} annotation are warmed up: providing an unscoped binding
+ * would build an instance (with whatever side effects it has) only to throw it away. Unscoped bindings are still
+ * followed as dependencies though, so that a scoped binding depending on another through unscoped ones comes in a later
+ * layer. Scoped {@code @Provides} methods cannot be seen from the component, so their bindings aren't warmed up.
+ *
+ * <p>Dependencies are read from the {@code @Inject} constructors, fields and methods of the provided types, and of the
+ * types they depend on that the component doesn't provide. Dependencies through {@link Provider}, {@link Lazy} or
+ * {@link MembersInjector} aren't provided eagerly so they're ignored. Bindings from {@code @Provides} methods, whose
+ * dependencies cannot be seen from the component, are assumed to have none; warm-up then still works, only with less
+ * parallelism.
+ */
+class WarmUpPlanner {
+  private final Types types;
+  private final List<ComponentMethodDescriptor> provisionMethods;
+  private final int[] layers;
+
+  WarmUpPlanner(Types types, List<ComponentMethodDescriptor> provisionMethods) {
+    this.types = types;
+    this.provisionMethods = provisionMethods;
+    this.layers = new int[provisionMethods.size()];
+  }
+
+  /** Returns the indexes of the provision methods of scoped bindings, by layer. */
+  List<List<Integer>> layers() {
+    List<List<Integer>> result = new ArrayList<>();
+    for (int index = 0; index < provisionMethods.size(); index++) {
+      if (!isScoped(index)) {
+        continue;
+      }
+      int layer = layer(index, new HashSet<Integer>());
+      while (result.size() <= layer) {
+        result.add(new ArrayList<Integer>());
+      }
+      result.get(layer).add(index);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the layer of the given provision method, 0 being the first one; that is the number of scoped bindings on
+   * the longest dependency path from the method. Unscoped bindings are in the same layer as their deepest dependency.
+   */
+  private int layer(int index, Set<Integer> visiting) {
+    // layers are stored plus one, so that 0 means not computed yet
+    if (layers[index] > 0) {
+      return layers[index] - 1;
+    }
+    if (!visiting.add(index)) {
+      // Dependency cycles are reported by Dagger
+      return 0;
+    }
+    int layer = 0;
+    Set<Integer> dependencies = new HashSet<>();
+    collectDependencies(provisionMethods.get(index).type(), dependencies, new HashSet<Element>());
+    dependencies.remove(index);
+    for (int dependency : dependencies) {
+      layer = Math.max(layer, layer(dependency, visiting) + (isScoped(dependency) ? 1 : 0));
+    }
+    visiting.remove(index);
+    layers[index] = layer + 1;
+    return layer;
+  }
+
+  /**
+   * Adds to {@code dependencies} the indexes of the provision methods that the given type depends on, directly or
+   * through types that the component doesn't provide.
+   */
+  private void collectDependencies(TypeMirror type, Set<Integer> dependencies, Set<Element> visited) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return;
+    }
+    TypeElement element = MoreTypes.asTypeElement(type);
+    if (!visited.add(element)) {
+      return;
+    }
+    for (VariableElement dependency : injectedDependencies(element)) {
+      TypeMirror dependencyType = dependency.asType();
+      if (dependencyType.getKind().isPrimitive()) {
+        dependencyType = types.boxedClass(MoreTypes.asPrimitiveType(dependencyType)).asType();
+      }
+      if (dependencyType.getKind() != TypeKind.DECLARED || isDeferred(dependencyType)) {
+        continue;
+      }
+      Optional<AnnotationMirror> qualifier = qualifier(dependency);
+      int index = indexOf(dependencyType, qualifier);
+      if (index >= 0) {
+        dependencies.add(index);
+      } else if (!qualifier.isPresent()) {
+        collectDependencies(dependencyType, dependencies, visited);
+      }
+    }
+  }
+
+  /** Returns the parameters of the {@code @Inject} constructor and methods, and the {@code @Inject} fields. */
+  private static List<VariableElement> injectedDependencies(TypeElement element) {
+    List<VariableElement> dependencies = new ArrayList<>();
+    for (TypeElement type = element; type != null; type = superclass(type)) {
+      for (Element enclosed : type.getEnclosedElements()) {
+        if (!MoreElements.isAnnotationPresent(enclosed, Inject.class)) {
+          continue;
+        }
+        switch (enclosed.getKind()) {
+          case CONSTRUCTOR:
+            if (type == element) {
+              dependencies.addAll(MoreElements.asExecutable(enclosed).getParameters());
+            }
+            break;
+          case METHOD:
+            dependencies.addAll(MoreElements.asExecutable(enclosed).getParameters());
+            break;
+          case FIELD:
+            dependencies.add(MoreElements.asVariable(enclosed));
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    return dependencies;
+  }
+
+  private boolean isScoped(int index) {
+    TypeMirror type = provisionMethods.get(index).type();
+    return type.getKind() == TypeKind.DECLARED
+        && !AnnotationMirrors.getAnnotatedAnnotations(MoreTypes.asTypeElement(type), Scope.class).isEmpty();
+  }
+
+  private static TypeElement superclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED ? MoreTypes.asTypeElement(superclass) : null;
+  }
+
+  private static boolean isDeferred(TypeMirror type) {
+    return MoreTypes.isTypeOf(Provider.class, type)
+        || MoreTypes.isTypeOf(Lazy.class, type)
+        || MoreTypes.isTypeOf(MembersInjector.class, type);
+  }
+
+  private static Optional<AnnotationMirror> qualifier(Element element) {
+    Set<? extends AnnotationMirror> qualifiers = AnnotationMirrors.getAnnotatedAnnotations(element, Qualifier.class);
+    return qualifiers.isEmpty()
+        ? Optional.<AnnotationMirror>absent()
+        : Optional.<AnnotationMirror>of(qualifiers.iterator().next());
+  }
+
+  private int indexOf(TypeMirror type, Optional<AnnotationMirror> qualifier) {
+    for (int index = 0; index < provisionMethods.size(); index++) {
+      ComponentMethodDescriptor method = provisionMethods.get(index);
+      if (types.isSameType(method.type(), type)
+          && AnnotationMirrors.equivalence().equivalent(method.qualifier().orNull(), qualifier.orNull())) {
+        return index;
+      }
+    }
+    return -1;
+  }
+}
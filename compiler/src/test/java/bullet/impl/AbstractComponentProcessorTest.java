@@ -69,32 +69,231 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == SomeInjectableType.class) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
         "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    if (type == SomeInjectableType.class) {",
-        "      return type.cast(this.component.someInjectableType());",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
         "    }",
-        "    throw new IllegalArgumentException()",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
         "  }",
         "",
         "  @Override",
         "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
         "    throw new IllegalArgumentException();",
         "  }",
+        "",
+        "  public BulletSimpleSubcomponent simpleSubcomponent() {",
+        "    return new BulletSimpleSubcomponent(this.component.simpleSubcomponent(), this);",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.someInjectableType();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.someInjectableType();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() != null || !(key.getType() instanceof Class)) {",
+        "      return -1;",
+        "    }",
+        "    return PROVISION_INDEX.get(key.getRawType());",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<SomeInjectableType> SOME_INJECTABLE_TYPE = new BindingKey<SomeInjectableType>(BulletSimpleComponent.class, 0, \"someInjectableType\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
         "}");
     assert_().about(javaSources()).that(ImmutableList.of(injectableTypeFile, otherInjectableTypeFile, subcomponentFile, componentFile))
         .processedWith(new ComponentProcessor())
@@ -124,35 +323,271 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletOuterType_SimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletOuterType_SimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == OuterType.A.class) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private static final ClassValue<Integer> MEMBERS_INJECTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (OuterType.B.class.isAssignableFrom(type)) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final OuterType.SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
         "  public BulletOuterType_SimpleComponent(final OuterType.SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletOuterType_SimpleComponent(final OuterType.SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    if (type == OuterType.A.class) {",
-        "      return type.cast(this.component.a());",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
         "    }",
-        "    throw new IllegalArgumentException()",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletOuterType_SimpleComponent.class) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletOuterType_SimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
         "  }",
         "",
         "  @Override",
         "  public <T> T inject(final T instance) {",
-        "    if (instance instanceof OuterType.B) {",
-        "      this.component.inject((OuterType.B) instance)",
-        "      return instance;",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(instance.getClass());",
+        "    if (index < 0) {",
+        "      return this.parent.inject(instance);",
+        "    }",
+        "    this.membersInjection(index, instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.membersInjector(type);",
+        "    }",
+        "    return new MembersInjector<T>() {",
+        "      @Override",
+        "      public void injectMembers(final T instance) {",
+        "        membersInjection(index, instance);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return MEMBERS_INJECTION_INDEX.get(type) >= 0 || this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final OuterType.SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final OuterType.SimpleComponent component, final T instance) {",
+        "    membersInjection(component, MEMBERS_INJECTION_INDEX.get(instance.getClass()), instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.a();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final OuterType.SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.a();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() != null || !(key.getType() instanceof Class)) {",
+        "      return -1;",
+        "    }",
+        "    return PROVISION_INDEX.get(key.getRawType());",
+        "  }",
+        "",
+        "  private void membersInjection(final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        this.component.inject((OuterType.B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static void membersInjection(final OuterType.SimpleComponent component, final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        component.inject((OuterType.B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<OuterType.A> A = new BindingKey<OuterType.A>(BulletOuterType_SimpleComponent.class, 0, \"a\");",
+        "",
+        "    private Keys() {",
         "    }",
-        "    throw new IllegalArgumentException();",
         "  }",
         "}");
     assert_().about(javaSources()).that(ImmutableList.of(nestedTypesFile))
@@ -238,105 +673,285 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> MEMBERS_INJECTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (A.class.isAssignableFrom(type)) {",
+        "        return 0;",
+        "      }",
+        "      if (C.class.isAssignableFrom(type)) {",
+        "        return 1;",
+        "      }",
+        "      if (B.class.isAssignableFrom(type)) {",
+        "        return 2;",
+        "      }",
+        "      if (D.class.isAssignableFrom(type)) {",
+        "        return 3;",
+        "      }",
+        "      if (I2.class.isAssignableFrom(type)) {",
+        "        return 4;",
+        "      }",
+        "      if (I.class.isAssignableFrom(type)) {",
+        "        return 5;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
         "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    throw new IllegalArgumentException()",
+        "    return this.parent.get(type);",
         "  }",
         "",
         "  @Override",
-        /*
-         * Note:
-         *  - A before I (as A implements I)
-         *  - C before B (as C extends B)
-         *  - D before I2 (as D implements I2)
-         *  - I2 before I (as I2 extends I)
-         *  - A before B, C and D; and D after A, B and C (natural ordering of names)
-         */
-        "  public <T> T inject(final T instance) {",
-        "    if (instance instanceof A) {",
-        "      this.component.inject((A) instance);",
-        "      return instance;",
-        "    }",
-        "    if (instance instanceof C) {",
-        "      this.component.inject((C) instance);",
-        "      return instance;",
-        "    }",
-        "    if (instance instanceof B) {",
-        "      this.component.inject((B) instance);",
-        "      return instance;",
-        "    }",
-        "    if (instance instanceof D) {",
-        "      this.component.inject((D) instance);",
-        "      return instance;",
-        "    }",
-        "    if (instance instanceof I2) {",
-        "      this.component.inject((I2) instance);",
-        "      return instance;",
-        "    }",
-        "    if (instance instanceof I) {",
-        "      this.component.inject((I) instance);",
-        "      return instance;",
-        "    }",
-        "    throw new IllegalArgumentException();",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    return this.parent.provider(type);",
         "  }",
-        "}");
-    assert_().about(javaSources()).that(ImmutableList.of(iFile, i2File, aFile, bFile, cFile, dFile, eFile, componentFile))
-        .processedWith(new ComponentProcessor())
-        .compilesWithoutError()
-        .and().generatesSources(generatedBullet);
-  }
-
-  @Test public void membersInjectionTypePrecedence2() {
-    // See https://code.google.com/p/google-web-toolkit/issues/detail?id=8036
-    JavaFileObject dFile = JavaFileObjects.forSourceLines("test.D",
-        "package test;",
         "",
-        "import javax.inject.Inject;",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    return this.parent.tryGet(type);",
+        "  }",
         "",
-        "final class D {",
-        "  @Inject D() {}",
-        "}");
-    JavaFileObject aFile = JavaFileObjects.forSourceLines("test.A",
-        "package test;",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return this.parent.canProvide(type);",
+        "  }",
         "",
-        "import javax.inject.Inject;",
+        "  @Override",
+        "  public <T> T get(final Key<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
         "",
-        "class A {",
-        "  @Inject D d;",
-        "}");
-    JavaFileObject bFile = JavaFileObjects.forSourceLines("test.B",
-        "package test;",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    return this.parent.provider(key);",
+        "  }",
         "",
-        "import javax.inject.Inject;",
+        "  @Override",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    return this.parent.tryGet(key);",
+        "  }",
         "",
-        "class B {",
-        "  @Inject D d;",
-        "}");
-    JavaFileObject cFile = JavaFileObjects.forSourceLines("test.C",
-        "package test;",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
         "",
-        "import javax.inject.Inject;",
-        "import javax.inject.Provider;",
+        "  @Override",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
         "",
-        "final class C extends A {",
-        "  @Inject B b;",
-        "}");
-    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
-        "package test;",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(instance.getClass());",
+        "    if (index < 0) {",
+        "      return this.parent.inject(instance);",
+        "    }",
+        "    this.membersInjection(index, instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.membersInjector(type);",
+        "    }",
+        "    return new MembersInjector<T>() {",
+        "      @Override",
+        "      public void injectMembers(final T instance) {",
+        "        membersInjection(index, instance);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return MEMBERS_INJECTION_INDEX.get(type) >= 0 || this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    throw new IllegalArgumentException();",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    membersInjection(component, MEMBERS_INJECTION_INDEX.get(instance.getClass()), instance);",
+        "    return instance;",
+        "  }",
+        "",
+        /*
+         * Note:
+         *  - A before I (as A implements I)
+         *  - C before B (as C extends B)
+         *  - D before I2 (as D implements I2)
+         *  - I2 before I (as I2 extends I)
+         *  - A before B, C and D; and D after A, B and C (natural ordering of names)
+         */
+        "  private void membersInjection(final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        this.component.inject((A) instance);",
+        "        return;",
+        "      case 1:",
+        "        this.component.inject((C) instance);",
+        "        return;",
+        "      case 2:",
+        "        this.component.inject((B) instance);",
+        "        return;",
+        "      case 3:",
+        "        this.component.inject((D) instance);",
+        "        return;",
+        "      case 4:",
+        "        this.component.inject((I2) instance);",
+        "        return;",
+        "      case 5:",
+        "        this.component.inject((I) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static void membersInjection(final SimpleComponent component, final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        component.inject((A) instance);",
+        "        return;",
+        "      case 1:",
+        "        component.inject((C) instance);",
+        "        return;",
+        "      case 2:",
+        "        component.inject((B) instance);",
+        "        return;",
+        "      case 3:",
+        "        component.inject((D) instance);",
+        "        return;",
+        "      case 4:",
+        "        component.inject((I2) instance);",
+        "        return;",
+        "      case 5:",
+        "        component.inject((I) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(iFile, i2File, aFile, bFile, cFile, dFile, eFile, componentFile))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void membersInjectionTypePrecedence2() {
+    // See https://code.google.com/p/google-web-toolkit/issues/detail?id=8036
+    JavaFileObject dFile = JavaFileObjects.forSourceLines("test.D",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "final class D {",
+        "  @Inject D() {}",
+        "}");
+    JavaFileObject aFile = JavaFileObjects.forSourceLines("test.A",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "class A {",
+        "  @Inject D d;",
+        "}");
+    JavaFileObject bFile = JavaFileObjects.forSourceLines("test.B",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "class B {",
+        "  @Inject D d;",
+        "}");
+    JavaFileObject cFile = JavaFileObjects.forSourceLines("test.C",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "import javax.inject.Provider;",
+        "",
+        "final class C extends A {",
+        "  @Inject B b;",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
         "",
         "import " + getComponentType().getCanonicalName() + ";",
         "",
@@ -349,44 +964,209 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> MEMBERS_INJECTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (B.class.isAssignableFrom(type)) {",
+        "        return 0;",
+        "      }",
+        "      if (C.class.isAssignableFrom(type)) {",
+        "        return 1;",
+        "      }",
+        "      if (A.class.isAssignableFrom(type)) {",
+        "        return 2;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
         "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    throw new IllegalArgumentException()",
+        "    return this.parent.get(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    return this.parent.provider(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    return this.parent.tryGet(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Key<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    return this.parent.provider(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    return this.parent.tryGet(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(instance.getClass());",
+        "    if (index < 0) {",
+        "      return this.parent.inject(instance);",
+        "    }",
+        "    this.membersInjection(index, instance);",
+        "    return instance;",
         "  }",
         "",
         "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.membersInjector(type);",
+        "    }",
+        "    return new MembersInjector<T>() {",
+        "      @Override",
+        "      public void injectMembers(final T instance) {",
+        "        membersInjection(index, instance);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return MEMBERS_INJECTION_INDEX.get(type) >= 0 || this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    throw new IllegalArgumentException();",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    membersInjection(component, MEMBERS_INJECTION_INDEX.get(instance.getClass()), instance);",
+        "    return instance;",
+        "  }",
+        "",
         /*
          * Note:
          *  - C before A (as C extends A)
          */
-        "  public <T> T inject(final T instance) {",
-        "    if (instance instanceof B) {",
-        "      this.component.inject((B) instance);",
-        "      return instance;",
-        "    }",
-        "    if (instance instanceof C) {",
-        "      this.component.inject((C) instance);",
-        "      return instance;",
+        "  private void membersInjection(final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        this.component.inject((B) instance);",
+        "        return;",
+        "      case 1:",
+        "        this.component.inject((C) instance);",
+        "        return;",
+        "      case 2:",
+        "        this.component.inject((A) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
         "    }",
-        "    if (instance instanceof A) {",
-        "      this.component.inject((A) instance);",
-        "      return instance;",
+        "  }",
+        "",
+        "  private static void membersInjection(final SimpleComponent component, final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        component.inject((B) instance);",
+        "        return;",
+        "      case 1:",
+        "        component.inject((C) instance);",
+        "        return;",
+        "      case 2:",
+        "        component.inject((A) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
         "    }",
-        "    throw new IllegalArgumentException();",
         "  }",
         "}");
     assert_().about(javaSources()).that(ImmutableList.of(dFile, aFile, bFile, cFile, componentFile))
@@ -499,39 +1279,246 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "import other.A;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == A.class) {",
+        "        return 0;",
+        "      }",
+        "      if (type == E.class) {",
+        "        return 1;",
+        "      }",
+        "      if (type == G.class) {",
+        "        return 2;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
         "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    if (type == A.class) {",
-        "      return type.cast(this.component.publicMethodInOtherPackage());",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
         "    }",
-        "    if (type == E.class) {",
-        "      return type.cast(this.component.protectedMethodInSamePackage());",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
         "    }",
-        "    if (type == G.class) {",
-        "      return type.cast(this.component.protectedMethod());",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
         "    }",
-        "    throw new IllegalArgumentException()",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
         "  }",
         "",
         "  @Override",
         "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
         "    throw new IllegalArgumentException();",
         "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.publicMethodInOtherPackage();",
+        "      case 1:",
+        "        return this.component.protectedMethodInSamePackage();",
+        "      case 2:",
+        "        return this.component.protectedMethod();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.publicMethodInOtherPackage();",
+        "      case 1:",
+        "        return component.protectedMethodInSamePackage();",
+        "      case 2:",
+        "        return component.protectedMethod();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() != null || !(key.getType() instanceof Class)) {",
+        "      return -1;",
+        "    }",
+        "    return PROVISION_INDEX.get(key.getRawType());",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<A> PUBLIC_METHOD_IN_OTHER_PACKAGE = new BindingKey<A>(BulletSimpleComponent.class, 0, \"publicMethodInOtherPackage\");",
+        "",
+        "    public static final BindingKey<E> PROTECTED_METHOD_IN_SAME_PACKAGE = new BindingKey<E>(BulletSimpleComponent.class, 1, \"protectedMethodInSamePackage\");",
+        "",
+        "    public static final BindingKey<G> PROTECTED_METHOD = new BindingKey<G>(BulletSimpleComponent.class, 2, \"protectedMethod\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
         "}");
     assert_().about(javaSources()).that(ImmutableList.of(
             aFile, bFile, cFile, dFile, eFile, fFile, gFile, hFile, iFile,
@@ -563,32 +1550,242 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == SomeInjectableType.class) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  private volatile Provider<SomeInjectableType> someInjectableType;",
+        "",
         "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    if (type == SomeInjectableType.class) {",
-        "      return type.cast(this.component.someInjectableType().get());",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
         "    }",
-        "    throw new IllegalArgumentException()",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
         "  }",
         "",
         "  @Override",
         "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
         "    throw new IllegalArgumentException();",
         "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.someInjectableType().get();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.someInjectableType().get();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() != null || !(key.getType() instanceof Class)) {",
+        "      return -1;",
+        "    }",
+        "    return PROVISION_INDEX.get(key.getRawType());",
+        "  }",
+        "",
+        "  private Provider<SomeInjectableType> someInjectableType() {",
+        "    Provider<SomeInjectableType> result = this.someInjectableType;",
+        "    if (result == null) {",
+        "      synchronized (this) {",
+        "        result = this.someInjectableType;",
+        "        if (result == null) {",
+        "          this.someInjectableType = result = this.component.someInjectableType();",
+        "        }",
+        "      }",
+        "    }",
+        "    return result;",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<SomeInjectableType> SOME_INJECTABLE_TYPE = new BindingKey<SomeInjectableType>(BulletSimpleComponent.class, 0, \"someInjectableType\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
         "}");
     assert_().about(javaSources()).that(ImmutableList.of(injectableTypeFile, componentFile))
         .processedWith(new ComponentProcessor())
@@ -618,32 +1815,227 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == SomeInjectableType.class) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
         "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    if (type == SomeInjectableType.class) {",
-        "      return type.cast(this.component.someInjectableType().get());",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
         "    }",
-        "    throw new IllegalArgumentException()",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
         "  }",
         "",
         "  @Override",
         "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
         "    throw new IllegalArgumentException();",
         "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.someInjectableType().get();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.someInjectableType().get();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() != null || !(key.getType() instanceof Class)) {",
+        "      return -1;",
+        "    }",
+        "    return PROVISION_INDEX.get(key.getRawType());",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<SomeInjectableType> SOME_INJECTABLE_TYPE = new BindingKey<SomeInjectableType>(BulletSimpleComponent.class, 0, \"someInjectableType\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
         "}");
     assert_().about(javaSources()).that(ImmutableList.of(injectableTypeFile, componentFile))
         .processedWith(new ComponentProcessor())
@@ -681,37 +2073,2663 @@ public abstract class AbstractComponentProcessorTest {
     JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
         "package test;",
         "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
         "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
         "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
         "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
         "import java.lang.Override;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
         "",
         "@Generated(\"bullet.impl.ComponentProcessor\")",
         "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> MEMBERS_INJECTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (B.class.isAssignableFrom(type)) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
         "  private final SimpleComponent component;",
         "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  private volatile MembersInjector<B> b;",
+        "",
         "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
         "    this.component = component;",
+        "    this.parent = parent;",
         "  }",
         "",
         "  @Override",
         "  public <T> T get(final Class<T> type) {",
-        "    throw new IllegalArgumentException()",
+        "    return this.parent.get(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    return this.parent.provider(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    return this.parent.tryGet(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Key<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    return this.parent.provider(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    return this.parent.tryGet(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
         "  }",
         "",
         "  @Override",
         "  public <T> T inject(final T instance) {",
-        "    if (instance instanceof B) {",
-        "      this.component.b().injectMembers((B) instance);",
-        "      return instance;",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(instance.getClass());",
+        "    if (index < 0) {",
+        "      return this.parent.inject(instance);",
         "    }",
+        "    this.membersInjection(index, instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.membersInjector(type);",
+        "    }",
+        "    return new MembersInjector<T>() {",
+        "      @Override",
+        "      public void injectMembers(final T instance) {",
+        "        membersInjection(index, instance);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return MEMBERS_INJECTION_INDEX.get(type) >= 0 || this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
         "    throw new IllegalArgumentException();",
         "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    membersInjection(component, MEMBERS_INJECTION_INDEX.get(instance.getClass()), instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  private void membersInjection(final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        this.b().injectMembers((B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static void membersInjection(final SimpleComponent component, final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        component.b().injectMembers((B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private MembersInjector<B> b() {",
+        "    MembersInjector<B> result = this.b;",
+        "    if (result == null) {",
+        "      synchronized (this) {",
+        "        result = this.b;",
+        "        if (result == null) {",
+        "          this.b = result = this.component.b();",
+        "        }",
+        "      }",
+        "    }",
+        "    return result;",
+        "  }",
         "}");
     assert_().about(javaSources()).that(ImmutableList.of(aFile, bFile, componentFile))
         .processedWith(new ComponentProcessor())
         .compilesWithoutError()
         .and().generatesSources(generatedBullet);
   }
+
+  @Test public void qualifiers() {
+    JavaFileObject injectableTypeFile = JavaFileObjects.forSourceLines("test.SomeInjectableType",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "final class SomeInjectableType {",
+        "  @Inject SomeInjectableType() {}",
+        "}");
+    JavaFileObject markerFile = JavaFileObjects.forSourceLines("test.Marker",
+        "package test;",
+        "",
+        "import javax.inject.Qualifier;",
+        "",
+        "@Qualifier",
+        "@interface Marker {}");
+    JavaFileObject complexFile = JavaFileObjects.forSourceLines("test.Complex",
+        "package test;",
+        "",
+        "import java.lang.annotation.RetentionPolicy;",
+        "import javax.inject.Qualifier;",
+        "",
+        "@Qualifier",
+        "@interface Complex {",
+        "  int i();",
+        "  double d() default 1.5;",
+        "  RetentionPolicy e() default RetentionPolicy.RUNTIME;",
+        "  Class<?> c() default Object.class;",
+        "  String[] s() default {};",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import " + getComponentType().getCanonicalName() + ";",
+        "import javax.inject.Named;",
+        "import javax.inject.Provider;",
+        "",
+        "@" + getComponentType().getSimpleName(),
+        "interface SimpleComponent {",
+        "  SomeInjectableType someInjectableType();",
+        "  @Named(\"a\") SomeInjectableType a();",
+        "  @Named(\"a\") Provider<SomeInjectableType> sameAsA();",
+        "  @Marker Provider<SomeInjectableType> marker();",
+        "  @Complex(i = 42, s = {\"a\", \"b\"}) SomeInjectableType complex();",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
+        "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
+        "import java.lang.Override;",
+        "import java.lang.String;",
+        "import java.lang.SuppressWarnings;",
+        "import java.lang.annotation.RetentionPolicy;",
+        "import java.util.Arrays;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.ConcurrentHashMap;",
+        "import java.util.concurrent.ConcurrentMap;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Named;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == SomeInjectableType.class) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private static final ConcurrentMap<Key<?>, Integer> KEY_PROVISION_INDEX = new ConcurrentHashMap<Key<?>, Integer>();",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  private volatile Provider<SomeInjectableType> marker;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
+        "    this.component = component;",
+        "    this.parent = parent;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    throw new IllegalArgumentException();",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.someInjectableType();",
+        "      case 1:",
+        "        return this.component.a();",
+        "      case 2:",
+        "        return this.marker().get();",
+        "      case 3:",
+        "        return this.component.complex();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.someInjectableType();",
+        "      case 1:",
+        "        return component.a();",
+        "      case 2:",
+        "        return component.marker().get();",
+        "      case 3:",
+        "        return component.complex();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() == null && key.getType() instanceof Class) {",
+        "      return PROVISION_INDEX.get(key.getRawType());",
+        "    }",
+        "    Integer index = KEY_PROVISION_INDEX.get(key);",
+        "    if (index == null) {",
+        "      index = this.keyProvisionIndex(key);",
+        "      if (index >= 0) {",
+        "        // Only cache matches, so that the map cannot grow past the number of methods",
+        "        KEY_PROVISION_INDEX.putIfAbsent(key, index);",
+        "      }",
+        "    }",
+        "    return index;",
+        "  }",
+        "",
+        "  private int keyProvisionIndex(final Key<?> key) {",
+        "    switch (key.getTypeName()) {",
+        "      case \"test.SomeInjectableType\":",
+        "        if (key.getRawType() == SomeInjectableType.class) {",
+        "          if (key.getQualifierType() == Named.class) {",
+        "            Named qualifier = (Named) key.getQualifier();",
+        "            if (\"a\".equals(qualifier.value())) {",
+        "              return 1;",
+        "            }",
+        "          }",
+        "          if (key.getQualifierType() == Marker.class) {",
+        "            return 2;",
+        "          }",
+        "          if (key.getQualifierType() == Complex.class) {",
+        "            Complex qualifier = (Complex) key.getQualifier();",
+        "            if (qualifier.i() == 42",
+        "                && Double.doubleToLongBits(qualifier.d()) == 4609434218613702656L",
+        "                && qualifier.e() == RetentionPolicy.RUNTIME",
+        "                && qualifier.c() == Object.class",
+        "                && Arrays.equals(qualifier.s(), new String[] {\"a\", \"b\"})) {",
+        "              return 3;",
+        "            }",
+        "          }",
+        "        }",
+        "        break;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "",
+        "  private Provider<SomeInjectableType> marker() {",
+        "    Provider<SomeInjectableType> result = this.marker;",
+        "    if (result == null) {",
+        "      synchronized (this) {",
+        "        result = this.marker;",
+        "        if (result == null) {",
+        "          this.marker = result = this.component.marker();",
+        "        }",
+        "      }",
+        "    }",
+        "    return result;",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<SomeInjectableType> SOME_INJECTABLE_TYPE = new BindingKey<SomeInjectableType>(BulletSimpleComponent.class, 0, \"someInjectableType\");",
+        "",
+        "    public static final BindingKey<SomeInjectableType> A = new BindingKey<SomeInjectableType>(BulletSimpleComponent.class, 1, \"a\");",
+        "",
+        "    public static final BindingKey<SomeInjectableType> MARKER = new BindingKey<SomeInjectableType>(BulletSimpleComponent.class, 2, \"marker\");",
+        "",
+        "    public static final BindingKey<SomeInjectableType> COMPLEX = new BindingKey<SomeInjectableType>(BulletSimpleComponent.class, 3, \"complex\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(injectableTypeFile, markerFile, complexFile, componentFile))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void parameterizedTypes() {
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import " + getComponentType().getCanonicalName() + ";",
+        "import java.util.List;",
+        "import java.util.Map;",
+        "import javax.inject.Named;",
+        "import javax.inject.Provider;",
+        "",
+        "@" + getComponentType().getSimpleName(),
+        "interface SimpleComponent {",
+        "  List<String> strings();",
+        "  Provider<List<Integer>> integers();",
+        "  List<String> sameAsStrings();",
+        "  @Named(\"a\") Map<String, List<? extends Number>> a();",
+        "  Map<String, int[]> arrays();",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
+        "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Number;",
+        "import java.lang.Object;",
+        "import java.lang.Override;",
+        "import java.lang.String;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.List;",
+        "import java.util.Map;",
+        "import java.util.concurrent.ConcurrentHashMap;",
+        "import java.util.concurrent.ConcurrentMap;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Named;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == List.class) {",
+        "        return 0;",
+        "      }",
+        "      if (type == Map.class) {",
+        "        return 3;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private static final ConcurrentMap<Key<?>, Integer> KEY_PROVISION_INDEX = new ConcurrentHashMap<Key<?>, Integer>();",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  private volatile Provider<List<Integer>> integers;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
+        "    this.component = component;",
+        "    this.parent = parent;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    throw new IllegalArgumentException();",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.strings();",
+        "      case 1:",
+        "        return this.integers().get();",
+        "      case 2:",
+        "        return this.component.a();",
+        "      case 3:",
+        "        return this.component.arrays();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.strings();",
+        "      case 1:",
+        "        return component.integers().get();",
+        "      case 2:",
+        "        return component.a();",
+        "      case 3:",
+        "        return component.arrays();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() == null && key.getType() instanceof Class) {",
+        "      return PROVISION_INDEX.get(key.getRawType());",
+        "    }",
+        "    Integer index = KEY_PROVISION_INDEX.get(key);",
+        "    if (index == null) {",
+        "      index = this.keyProvisionIndex(key);",
+        "      if (index >= 0) {",
+        "        // Only cache matches, so that the map cannot grow past the number of methods",
+        "        KEY_PROVISION_INDEX.putIfAbsent(key, index);",
+        "      }",
+        "    }",
+        "    return index;",
+        "  }",
+        "",
+        "  private int keyProvisionIndex(final Key<?> key) {",
+        "    switch (key.getTypeName()) {",
+        "      case \"java.util.List<java.lang.String>\":",
+        "        if (key.getRawType() == List.class) {",
+        "          if (key.getQualifierType() == null) {",
+        "            return 0;",
+        "          }",
+        "        }",
+        "        break;",
+        "      case \"java.util.List<java.lang.Integer>\":",
+        "        if (key.getRawType() == List.class) {",
+        "          if (key.getQualifierType() == null) {",
+        "            return 1;",
+        "          }",
+        "        }",
+        "        break;",
+        "      case \"java.util.Map<java.lang.String, java.util.List<? extends java.lang.Number>>\":",
+        "        if (key.getRawType() == Map.class) {",
+        "          if (key.getQualifierType() == Named.class) {",
+        "            Named qualifier = (Named) key.getQualifier();",
+        "            if (\"a\".equals(qualifier.value())) {",
+        "              return 2;",
+        "            }",
+        "          }",
+        "        }",
+        "        break;",
+        "      case \"java.util.Map\":",
+        "        if (key.getRawType() == Map.class) {",
+        "          if (key.getQualifierType() == Named.class) {",
+        "            Named qualifier = (Named) key.getQualifier();",
+        "            if (\"a\".equals(qualifier.value())) {",
+        "              return 2;",
+        "            }",
+        "          }",
+        "        }",
+        "        break;",
+        "      case \"java.util.Map<java.lang.String, int[]>\":",
+        "        if (key.getRawType() == Map.class) {",
+        "          if (key.getQualifierType() == null) {",
+        "            return 3;",
+        "          }",
+        "        }",
+        "        break;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "",
+        "  private Provider<List<Integer>> integers() {",
+        "    Provider<List<Integer>> result = this.integers;",
+        "    if (result == null) {",
+        "      synchronized (this) {",
+        "        result = this.integers;",
+        "        if (result == null) {",
+        "          this.integers = result = this.component.integers();",
+        "        }",
+        "      }",
+        "    }",
+        "    return result;",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<List<String>> STRINGS = new BindingKey<List<String>>(BulletSimpleComponent.class, 0, \"strings\");",
+        "",
+        "    public static final BindingKey<List<Integer>> INTEGERS = new BindingKey<List<Integer>>(BulletSimpleComponent.class, 1, \"integers\");",
+        "",
+        "    public static final BindingKey<Map<String, List<? extends Number>>> A = new BindingKey<Map<String, List<? extends Number>>>(BulletSimpleComponent.class, 2, \"a\");",
+        "",
+        "    public static final BindingKey<Map<String, int[]>> ARRAYS = new BindingKey<Map<String, int[]>>(BulletSimpleComponent.class, 3, \"arrays\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(componentFile))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void primitives() {
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import " + getComponentType().getCanonicalName() + ";",
+        "import javax.inject.Named;",
+        "import javax.inject.Provider;",
+        "",
+        "@" + getComponentType().getSimpleName(),
+        "interface SimpleComponent {",
+        "  int maxConnections();",
+        "  @Named(\"timeout\") long timeoutMillis();",
+        "  @Named(\"boxed\") Provider<Integer> boxed();",
+        "  boolean enabled();",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
+        "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
+        "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.ConcurrentHashMap;",
+        "import java.util.concurrent.ConcurrentMap;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Named;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == Integer.class) {",
+        "        return 0;",
+        "      }",
+        "      if (type == Boolean.class) {",
+        "        return 3;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private static final ConcurrentMap<Key<?>, Integer> KEY_PROVISION_INDEX = new ConcurrentHashMap<Key<?>, Integer>();",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  private volatile Provider<Integer> boxed;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
+        "    this.component = component;",
+        "    this.parent = parent;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.maxConnections();",
+        "      case 2:",
+        "        return this.boxed().get();",
+        "      default:",
+        "        return this.parent.getInt(key);",
+        "    }",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    switch (index) {",
+        "      case 1:",
+        "        return this.component.timeoutMillis();",
+        "      default:",
+        "        return this.parent.getLong(key);",
+        "    }",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    switch (index) {",
+        "      case 3:",
+        "        return this.component.enabled();",
+        "      default:",
+        "        return this.parent.getBoolean(key);",
+        "    }",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    throw new IllegalArgumentException();",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.maxConnections();",
+        "      case 1:",
+        "        return this.component.timeoutMillis();",
+        "      case 2:",
+        "        return this.boxed().get();",
+        "      case 3:",
+        "        return this.component.enabled();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.maxConnections();",
+        "      case 1:",
+        "        return component.timeoutMillis();",
+        "      case 2:",
+        "        return component.boxed().get();",
+        "      case 3:",
+        "        return component.enabled();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() == null && key.getType() instanceof Class) {",
+        "      return PROVISION_INDEX.get(key.getRawType());",
+        "    }",
+        "    Integer index = KEY_PROVISION_INDEX.get(key);",
+        "    if (index == null) {",
+        "      index = this.keyProvisionIndex(key);",
+        "      if (index >= 0) {",
+        "        // Only cache matches, so that the map cannot grow past the number of methods",
+        "        KEY_PROVISION_INDEX.putIfAbsent(key, index);",
+        "      }",
+        "    }",
+        "    return index;",
+        "  }",
+        "",
+        "  private int keyProvisionIndex(final Key<?> key) {",
+        "    switch (key.getTypeName()) {",
+        "      case \"java.lang.Long\":",
+        "        if (key.getRawType() == Long.class) {",
+        "          if (key.getQualifierType() == Named.class) {",
+        "            Named qualifier = (Named) key.getQualifier();",
+        "            if (\"timeout\".equals(qualifier.value())) {",
+        "              return 1;",
+        "            }",
+        "          }",
+        "        }",
+        "        break;",
+        "      case \"java.lang.Integer\":",
+        "        if (key.getRawType() == Integer.class) {",
+        "          if (key.getQualifierType() == Named.class) {",
+        "            Named qualifier = (Named) key.getQualifier();",
+        "            if (\"boxed\".equals(qualifier.value())) {",
+        "              return 2;",
+        "            }",
+        "          }",
+        "        }",
+        "        break;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "",
+        "  private Provider<Integer> boxed() {",
+        "    Provider<Integer> result = this.boxed;",
+        "    if (result == null) {",
+        "      synchronized (this) {",
+        "        result = this.boxed;",
+        "        if (result == null) {",
+        "          this.boxed = result = this.component.boxed();",
+        "        }",
+        "      }",
+        "    }",
+        "    return result;",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<Integer> MAX_CONNECTIONS = new BindingKey<Integer>(BulletSimpleComponent.class, 0, \"maxConnections\");",
+        "",
+        "    public static final BindingKey<Long> TIMEOUT_MILLIS = new BindingKey<Long>(BulletSimpleComponent.class, 1, \"timeoutMillis\");",
+        "",
+        "    public static final BindingKey<Integer> BOXED = new BindingKey<Integer>(BulletSimpleComponent.class, 2, \"boxed\");",
+        "",
+        "    public static final BindingKey<Boolean> ENABLED = new BindingKey<Boolean>(BulletSimpleComponent.class, 3, \"enabled\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(componentFile))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void deferClassLoading() {
+    JavaFileObject aFile = JavaFileObjects.forSourceLines("test.A",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "class A {",
+        "  @Inject A() {}",
+        "}");
+    JavaFileObject bFile = JavaFileObjects.forSourceLines("test.B",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "class B {",
+        "  @Inject A a;",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import " + getComponentType().getCanonicalName() + ";",
+        "",
+        "@" + getComponentType().getSimpleName(),
+        "interface SimpleComponent {",
+        "  A a();",
+        "  void inject(B b);",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
+        "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
+        "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      switch (type.getName()) {",
+        "        case \"test.A\":",
+        "          if (type == A.class) {",
+        "            return 0;",
+        "          }",
+        "          break;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private static final ClassValue<Integer> MEMBERS_INJECTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      switch (type.getName()) {",
+        "        case \"test.B\":",
+        "          if (type == B.class) {",
+        "            return 0;",
+        "          }",
+        "          break;",
+        "      }",
+        "      int index = -1;",
+        "      if (type.getSuperclass() != null) {",
+        "        index = get(type.getSuperclass());",
+        "      }",
+        "      for (Class<?> supertype : type.getInterfaces()) {",
+        "        int candidate = get(supertype);",
+        "        if (candidate >= 0 && (index < 0 || candidate < index)) {",
+        "          index = candidate;",
+        "        }",
+        "      }",
+        "      return index;",
+        "    }",
+        "  };",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
+        "    this.component = component;",
+        "    this.parent = parent;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(instance.getClass());",
+        "    if (index < 0) {",
+        "      return this.parent.inject(instance);",
+        "    }",
+        "    this.membersInjection(index, instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.membersInjector(type);",
+        "    }",
+        "    return new MembersInjector<T>() {",
+        "      @Override",
+        "      public void injectMembers(final T instance) {",
+        "        membersInjection(index, instance);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return MEMBERS_INJECTION_INDEX.get(type) >= 0 || this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    membersInjection(component, MEMBERS_INJECTION_INDEX.get(instance.getClass()), instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.a();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.a();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() != null || !(key.getType() instanceof Class)) {",
+        "      return -1;",
+        "    }",
+        "    return PROVISION_INDEX.get(key.getRawType());",
+        "  }",
+        "",
+        "  private void membersInjection(final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        this.component.inject((B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static void membersInjection(final SimpleComponent component, final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        component.inject((B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<A> A = new BindingKey<A>(BulletSimpleComponent.class, 0, \"a\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(aFile, bFile, componentFile))
+        .withCompilerOptions("-Abullet.deferClassLoading=true")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void idempotentInject() {
+    JavaFileObject bFile = JavaFileObjects.forSourceLines("test.B",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "class B {",
+        "  @Inject String s;",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import " + getComponentType().getCanonicalName() + ";",
+        "",
+        "@" + getComponentType().getSimpleName(),
+        "interface SimpleComponent {",
+        "  void inject(B b);",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.InjectedInstances;",
+        "import bullet.Key;",
+        "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
+        "import java.lang.Override;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> MEMBERS_INJECTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (B.class.isAssignableFrom(type)) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  private final InjectedInstances injectedInstances = new InjectedInstances();",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
+        "    this.component = component;",
+        "    this.parent = parent;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Class<T> type) {",
+        "    return this.parent.get(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    return this.parent.provider(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    return this.parent.tryGet(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Key<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    return this.parent.provider(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    return this.parent.tryGet(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    return this.parent.get(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    if (this.injectedInstances.contains(instance)) {",
+        "      return instance;",
+        "    }",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(instance.getClass());",
+        "    if (index < 0) {",
+        "      return this.parent.inject(instance);",
+        "    }",
+        "    this.membersInjection(index, instance);",
+        "    this.injectedInstances.add(instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.membersInjector(type);",
+        "    }",
+        "    return new MembersInjector<T>() {",
+        "      @Override",
+        "      public void injectMembers(final T instance) {",
+        "        if (injectedInstances.contains(instance)) {",
+        "          return;",
+        "        }",
+        "        membersInjection(index, instance);",
+        "        // Instances of subclasses with members of their own are only partially injected",
+        "        if (index == MEMBERS_INJECTION_INDEX.get(instance.getClass())) {",
+        "          injectedInstances.add(instance);",
+        "        }",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return MEMBERS_INJECTION_INDEX.get(type) >= 0 || this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    throw new IllegalArgumentException();",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    membersInjection(component, MEMBERS_INJECTION_INDEX.get(instance.getClass()), instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  private void membersInjection(final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        this.component.inject((B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static void membersInjection(final SimpleComponent component, final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        component.inject((B) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(bFile, componentFile))
+        .withCompilerOptions("-Abullet.idempotentInject=true")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void warmUpLayers() {
+    JavaFileObject injectablesFile = JavaFileObjects.forSourceLines("test.Injectables",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "import javax.inject.Provider;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "class A {",
+        "  @Inject A() {}",
+        "}",
+        "class B {",
+        "  @Inject A a;",
+        "  @Inject B() {}",
+        "}",
+        "@Singleton",
+        "class C {",
+        "  @Inject C(D d) {}",
+        "}",
+        "class D {",
+        "  @Inject D(B b) {}",
+        "}",
+        "@Singleton",
+        "class E {",
+        "  @Inject E(Provider<C> c) {}",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import " + getComponentType().getCanonicalName() + ";",
+        "",
+        "@" + getComponentType().getSimpleName(),
+        "interface SimpleComponent {",
+        "  C c();",
+        "  B b();",
+        "  A a();",
+        "  E e();",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
+        "import bullet.ObjectGraph;",
+        "import bullet.WarmUp;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Object;",
+        "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == C.class) {",
+        "        return 0;",
+        "      }",
+        "      if (type == B.class) {",
+        "        return 1;",
+        "      }",
+        "      if (type == A.class) {",
+        "        return 2;",
+        "      }",
+        "      if (type == E.class) {",
+        "        return 3;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
+        "    this.component = component;",
+        "    this.parent = parent;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    return this.parent.inject(instance);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    return this.parent.membersInjector(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    throw new IllegalArgumentException();",
+        "  }",
+        "",
+        "  public void warmUp(final Executor executor) {",
+        "    WarmUp.run(this, executor,",
+        "        new BindingKey<?>[] { Keys.A, Keys.E },",
+        "        new BindingKey<?>[] { Keys.C });",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.c();",
+        "      case 1:",
+        "        return this.component.b();",
+        "      case 2:",
+        "        return this.component.a();",
+        "      case 3:",
+        "        return this.component.e();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.c();",
+        "      case 1:",
+        "        return component.b();",
+        "      case 2:",
+        "        return component.a();",
+        "      case 3:",
+        "        return component.e();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() != null || !(key.getType() instanceof Class)) {",
+        "      return -1;",
+        "    }",
+        "    return PROVISION_INDEX.get(key.getRawType());",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<C> C = new BindingKey<C>(BulletSimpleComponent.class, 0, \"c\");",
+        "",
+        "    public static final BindingKey<B> B = new BindingKey<B>(BulletSimpleComponent.class, 1, \"b\");",
+        "",
+        "    public static final BindingKey<A> A = new BindingKey<A>(BulletSimpleComponent.class, 2, \"a\");",
+        "",
+        "    public static final BindingKey<E> E = new BindingKey<E>(BulletSimpleComponent.class, 3, \"e\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(injectablesFile, componentFile))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void parameterizedHandles() {
+    JavaFileObject holderFile = JavaFileObjects.forSourceLines("test.Holder",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "class Holder<T> {",
+        "  @Inject T value;",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import " + getComponentType().getCanonicalName() + ";",
+        "import dagger.Lazy;",
+        "import dagger.MembersInjector;",
+        "import java.util.List;",
+        "import java.util.Map;",
+        "import javax.inject.Provider;",
+        "",
+        "@" + getComponentType().getSimpleName(),
+        "interface SimpleComponent {",
+        "  Provider<List<? extends Number>> numbers();",
+        "  Lazy<Map<String, ? super Integer>> integers();",
+        "  MembersInjector<Holder<List<? extends Number>>> holder();",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.BatchInjection;",
+        "import bullet.BindingKey;",
+        "import bullet.EmptyObjectGraph;",
+        "import bullet.Key;",
+        "import bullet.ObjectGraph;",
+        "import dagger.MembersInjector;",
+        "import java.lang.Boolean;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.Double;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Long;",
+        "import java.lang.Number;",
+        "import java.lang.Object;",
+        "import java.lang.Override;",
+        "import java.lang.String;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.Collection;",
+        "import java.util.List;",
+        "import java.util.Map;",
+        "import java.util.concurrent.ConcurrentHashMap;",
+        "import java.util.concurrent.ConcurrentMap;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements ObjectGraph {",
+        "  private static final ClassValue<Integer> PROVISION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == List.class) {",
+        "        return 0;",
+        "      }",
+        "      if (type == Map.class) {",
+        "        return 1;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private static final ConcurrentMap<Key<?>, Integer> KEY_PROVISION_INDEX = new ConcurrentHashMap<Key<?>, Integer>();",
+        "",
+        "  private static final ClassValue<Integer> MEMBERS_INJECTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (Holder.class.isAssignableFrom(type)) {",
+        "        return 0;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  private final ObjectGraph parent;",
+        "",
+        "  private volatile Provider<List<? extends Number>> numbers;",
+        "",
+        "  private volatile MembersInjector<Holder<List<? extends Number>>> holder;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this(component, EmptyObjectGraph.INSTANCE);",
+        "  }",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component, final ObjectGraph parent) {",
+        "    this.component = component;",
+        "    this.parent = parent;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T get(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.get(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(type);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      public T get() {",
+        "        return type.cast(provision(index));",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T tryGet(final Class<T> type) {",
+        "    final int index = PROVISION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(type);",
+        "    }",
+        "    return type.cast(this.provision(index));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Class<?> type) {",
+        "    return PROVISION_INDEX.get(type) >= 0 || this.parent.canProvide(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> Provider<T> provider(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.provider(key);",
+        "    }",
+        "    return new Provider<T>() {",
+        "      @Override",
+        "      @SuppressWarnings(\"unchecked\")",
+        "      public T get() {",
+        "        return (T) provision(index);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T tryGet(final Key<T> key) {",
+        "    final int index = this.provisionIndex(key);",
+        "    if (index < 0) {",
+        "      return this.parent.tryGet(key);",
+        "    }",
+        "    return (T) this.provision(index);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final Key<?> key) {",
+        "    return this.provisionIndex(key) >= 0 || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> T get(final BindingKey<T> key) {",
+        "    if (key.getGraphType() != BulletSimpleComponent.class) {",
+        "      return this.parent.get(key);",
+        "    }",
+        "    return (T) this.provision(key.getId());",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProvide(final BindingKey<?> key) {",
+        "    return key.getGraphType() == BulletSimpleComponent.class || this.parent.canProvide(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public int getInt(final Key<Integer> key) {",
+        "    return this.parent.getInt(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public long getLong(final Key<Long> key) {",
+        "    return this.parent.getLong(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public double getDouble(final Key<Double> key) {",
+        "    return this.parent.getDouble(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean getBoolean(final Key<Boolean> key) {",
+        "    return this.parent.getBoolean(key);",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> T inject(final T instance) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(instance.getClass());",
+        "    if (index < 0) {",
+        "      return this.parent.inject(instance);",
+        "    }",
+        "    this.membersInjection(index, instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  @Override",
+        "  public <T> MembersInjector<T> membersInjector(final Class<T> type) {",
+        "    final int index = MEMBERS_INJECTION_INDEX.get(type);",
+        "    if (index < 0) {",
+        "      return this.parent.membersInjector(type);",
+        "    }",
+        "    return new MembersInjector<T>() {",
+        "      @Override",
+        "      public void injectMembers(final T instance) {",
+        "        membersInjection(index, instance);",
+        "      }",
+        "    };",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canInject(final Class<?> type) {",
+        "    return MEMBERS_INJECTION_INDEX.get(type) >= 0 || this.parent.canInject(type);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances) {",
+        "    BatchInjection.injectAll(this, instances);",
+        "  }",
+        "",
+        "  @Override",
+        "  public void injectAll(final Collection<?> instances, final Executor executor) {",
+        "    BatchInjection.injectAll(this, instances, executor);",
+        "  }",
+        "",
+        "  public static <T> T get(final SimpleComponent component, final Class<T> type) {",
+        "    return type.cast(provision(component, PROVISION_INDEX.get(type)));",
+        "  }",
+        "",
+        "  public static <T> T inject(final SimpleComponent component, final T instance) {",
+        "    membersInjection(component, MEMBERS_INJECTION_INDEX.get(instance.getClass()), instance);",
+        "    return instance;",
+        "  }",
+        "",
+        "  private Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.numbers().get();",
+        "      case 1:",
+        "        return this.component.integers().get();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static Object provision(final SimpleComponent component, final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return component.numbers().get();",
+        "      case 1:",
+        "        return component.integers().get();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private int provisionIndex(final Key<?> key) {",
+        "    if (key.getQualifierType() == null && key.getType() instanceof Class) {",
+        "      return PROVISION_INDEX.get(key.getRawType());",
+        "    }",
+        "    Integer index = KEY_PROVISION_INDEX.get(key);",
+        "    if (index == null) {",
+        "      index = this.keyProvisionIndex(key);",
+        "      if (index >= 0) {",
+        "        // Only cache matches, so that the map cannot grow past the number of methods",
+        "        KEY_PROVISION_INDEX.putIfAbsent(key, index);",
+        "      }",
+        "    }",
+        "    return index;",
+        "  }",
+        "",
+        "  private int keyProvisionIndex(final Key<?> key) {",
+        "    switch (key.getTypeName()) {",
+        "      case \"java.util.List<? extends java.lang.Number>\":",
+        "        if (key.getRawType() == List.class) {",
+        "          if (key.getQualifierType() == null) {",
+        "            return 0;",
+        "          }",
+        "        }",
+        "        break;",
+        "      case \"java.util.Map<java.lang.String, ? super java.lang.Integer>\":",
+        "        if (key.getRawType() == Map.class) {",
+        "          if (key.getQualifierType() == null) {",
+        "            return 1;",
+        "          }",
+        "        }",
+        "        break;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "",
+        "  private void membersInjection(final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        this.holder().injectMembers((Holder<List<? extends Number>>) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private static void membersInjection(final SimpleComponent component, final int index, final Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        component.holder().injectMembers((Holder<List<? extends Number>>) instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "",
+        "  private Provider<List<? extends Number>> numbers() {",
+        "    Provider<List<? extends Number>> result = this.numbers;",
+        "    if (result == null) {",
+        "      synchronized (this) {",
+        "        result = this.numbers;",
+        "        if (result == null) {",
+        "          this.numbers = result = this.component.numbers();",
+        "        }",
+        "      }",
+        "    }",
+        "    return result;",
+        "  }",
+        "",
+        "  private MembersInjector<Holder<List<? extends Number>>> holder() {",
+        "    MembersInjector<Holder<List<? extends Number>>> result = this.holder;",
+        "    if (result == null) {",
+        "      synchronized (this) {",
+        "        result = this.holder;",
+        "        if (result == null) {",
+        "          this.holder = result = this.component.holder();",
+        "        }",
+        "      }",
+        "    }",
+        "    return result;",
+        "  }",
+        "",
+        "  public static final class Keys {",
+        "    public static final BindingKey<List<? extends Number>> NUMBERS = new BindingKey<List<? extends Number>>(BulletSimpleComponent.class, 0, \"numbers\");",
+        "",
+        "    public static final BindingKey<Map<String, ? super Integer>> INTEGERS = new BindingKey<Map<String, ? super Integer>>(BulletSimpleComponent.class, 1, \"integers\");",
+        "",
+        "    private Keys() {",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(holderFile, componentFile))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void productionComponent() {
+    JavaFileObject hiddenFile = JavaFileObjects.forSourceLines("other.Hidden",
+        "package other;",
+        "",
+        "class Hidden {",
+        "}");
+    JavaFileObject baseComponentFile = JavaFileObjects.forSourceLines("other.BaseComponent",
+        "package other;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "",
+        "public interface BaseComponent {",
+        "  ListenableFuture<Hidden> hidden();",
+        "}");
+    JavaFileObject fooFile = JavaFileObjects.forSourceLines("test.Foo",
+        "package test;",
+        "",
+        "class Foo {",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.ProductionComponent;",
+        "import java.util.List;",
+        "import javax.inject.Named;",
+        "",
+        "@ProductionComponent",
+        "interface SimpleComponent extends other.BaseComponent {",
+        "  ListenableFuture<Foo> foo();",
+        "  ListenableFuture<List<String>> strings();",
+        "  ListenableFuture<Foo> sameAsFoo();",
+        "  @Named(\"foo\") ListenableFuture<Foo> namedFoo();",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.AsyncObjectGraph;",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.List;",
+        "import javax.annotation.Generated;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements AsyncObjectGraph {",
+        "  private static final ClassValue<Integer> PRODUCTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      if (type == Foo.class) {",
+        "        return 0;",
+        "      }",
+        "      if (type == List.class) {",
+        "        return 1;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this.component = component;",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> ListenableFuture<T> get(final Class<T> type) {",
+        "    return (ListenableFuture<T>) this.production(PRODUCTION_INDEX.get(type));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProduce(final Class<?> type) {",
+        "    return PRODUCTION_INDEX.get(type) >= 0;",
+        "  }",
+        "",
+        "  private ListenableFuture<?> production(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.foo();",
+        "      case 1:",
+        "        return this.component.strings();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(hiddenFile, baseComponentFile, fooFile, componentFile))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
+
+  @Test public void productionComponentDeferClassLoading() {
+    JavaFileObject fooFile = JavaFileObjects.forSourceLines("test.Foo",
+        "package test;",
+        "",
+        "class Foo {",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.ProductionComponent;",
+        "import java.util.List;",
+        "",
+        "@ProductionComponent",
+        "interface SimpleComponent {",
+        "  ListenableFuture<Foo> foo();",
+        "  ListenableFuture<List<String>> strings();",
+        "}");
+    JavaFileObject generatedBullet = JavaFileObjects.forSourceLines("test.BulletSimpleComponent",
+        "package test;",
+        "",
+        "import bullet.AsyncObjectGraph;",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import java.lang.Class;",
+        "import java.lang.ClassValue;",
+        "import java.lang.IllegalArgumentException;",
+        "import java.lang.Integer;",
+        "import java.lang.Override;",
+        "import java.lang.SuppressWarnings;",
+        "import java.util.List;",
+        "import javax.annotation.Generated;",
+        "",
+        "@Generated(\"bullet.impl.ComponentProcessor\")",
+        "public final class BulletSimpleComponent implements AsyncObjectGraph {",
+        "  private static final ClassValue<Integer> PRODUCTION_INDEX = new ClassValue<Integer>() {",
+        "    @Override",
+        "    protected Integer computeValue(final Class<?> type) {",
+        "      switch (type.getName()) {",
+        "        case \"test.Foo\":",
+        "          if (type == Foo.class) {",
+        "            return 0;",
+        "          }",
+        "          break;",
+        "        case \"java.util.List\":",
+        "          if (type == List.class) {",
+        "            return 1;",
+        "          }",
+        "          break;",
+        "      }",
+        "      return -1;",
+        "    }",
+        "  };",
+        "",
+        "  private final SimpleComponent component;",
+        "",
+        "  public BulletSimpleComponent(final SimpleComponent component) {",
+        "    this.component = component;",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public <T> ListenableFuture<T> get(final Class<T> type) {",
+        "    return (ListenableFuture<T>) this.production(PRODUCTION_INDEX.get(type));",
+        "  }",
+        "",
+        "  @Override",
+        "  public boolean canProduce(final Class<?> type) {",
+        "    return PRODUCTION_INDEX.get(type) >= 0;",
+        "  }",
+        "",
+        "  private ListenableFuture<?> production(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return this.component.foo();",
+        "      case 1:",
+        "        return this.component.strings();",
+        "      default:",
+        "        throw new IllegalArgumentException();",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources()).that(ImmutableList.of(fooFile, componentFile))
+        .withCompilerOptions("-Abullet.deferClassLoading=true")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedBullet);
+  }
 }
@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.List;
 
+import javax.lang.model.element.AnnotationMirror;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,6 +18,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
 import com.google.common.base.Functions;
+import com.google.common.base.Optional;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
 import com.google.testing.compile.CompilationRule;
@@ -166,6 +169,7 @@ public class MembersInjectionMethodsBuilderTest {
         ComponentMethodKind.SIMPLE_MEMBERS_INJECTION,
         compilationRule.getTypes().getDeclaredType(
             compilationRule.getElements().getTypeElement(clazz.getCanonicalName())),
-        Introspector.decapitalize(clazz.getSimpleName()));
+        Introspector.decapitalize(clazz.getSimpleName()),
+        Optional.<AnnotationMirror>absent());
   }
 }
@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static javax.lang.model.element.Modifier.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.google.common.base.Joiner;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+public class MethodSplitterTest {
+  private static final MethodSpec PROVISION_SIGNATURE = MethodSpec.methodBuilder("provision")
+      .returns(Object.class)
+      .addParameter(TypeName.INT, "index", FINAL)
+      .build();
+  private static final MethodSpec MEMBERS_INJECTION_SIGNATURE = MethodSpec.methodBuilder("membersInjection")
+      .addParameter(TypeName.INT, "index", FINAL)
+      .addParameter(Object.class, "instance", FINAL)
+      .build();
+  private static final MethodSpec COMPUTE_VALUE_SIGNATURE = MethodSpec.methodBuilder("computeValue")
+      .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class)), "type", FINAL)
+      .build();
+  private static final CodeBlock THROW = CodeBlock.builder().add("throw new IllegalStateException();\n").build();
+  private static final CodeBlock EMPTY = CodeBlock.builder().build();
+
+  @Test public void switchFittingInOneMethod() {
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = provisionMethod();
+    new MethodSplitter(30).addSwitch(classBuilder, PROVISION_SIGNATURE, method, provisionCases(3), 10, THROW);
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  private java.lang.Object provision(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return a0();",
+        "      case 1:",
+        "        return a1();",
+        "      case 2:",
+        "        return a2();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "}"));
+  }
+
+  @Test public void splitSwitch() {
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = provisionMethod();
+    new MethodSplitter(20).addSwitch(classBuilder, PROVISION_SIGNATURE, method, provisionCases(3), 10, THROW);
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  private java.lang.Object provision0(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return a0();",
+        "      case 1:",
+        "        return a1();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private java.lang.Object provision1(final int index) {",
+        "    switch (index) {",
+        "      case 2:",
+        "        return a2();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private java.lang.Object provision(final int index) {",
+        "    switch (index / 2) {",
+        "      case 0:",
+        "        return provision0(index);",
+        "      case 1:",
+        "        return provision1(index);",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "}"));
+  }
+
+  @Test public void splitSparseSwitch() {
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = provisionMethod();
+    SortedMap<Integer, CodeBlock> cases = new TreeMap<>();
+    for (int i : new int[] { 1, 2, 7 }) {
+      cases.put(i, CodeBlock.builder().add("return a$L();\n", i).build());
+    }
+    new MethodSplitter(20).addSwitch(classBuilder, PROVISION_SIGNATURE, method, cases, 10, THROW);
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  private java.lang.Object provision0(final int index) {",
+        "    switch (index) {",
+        "      case 1:",
+        "        return a1();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private java.lang.Object provision1(final int index) {",
+        "    switch (index) {",
+        "      case 2:",
+        "        return a2();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private java.lang.Object provision3(final int index) {",
+        "    switch (index) {",
+        "      case 7:",
+        "        return a7();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private java.lang.Object provision(final int index) {",
+        "    switch (index / 2) {",
+        "      case 0:",
+        "        return provision0(index);",
+        "      case 1:",
+        "        return provision1(index);",
+        "      case 3:",
+        "        return provision3(index);",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "}"));
+  }
+
+  @Test public void splitVoidSwitch() {
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = MethodSpec.methodBuilder("membersInjection")
+        .addModifiers(PRIVATE)
+        .addParameter(MEMBERS_INJECTION_SIGNATURE.parameters.get(0))
+        .addParameter(MEMBERS_INJECTION_SIGNATURE.parameters.get(1));
+    List<CodeBlock> cases = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      cases.add(CodeBlock.builder().add("a$L(instance);\nreturn;\n", i).build());
+    }
+    new MethodSplitter(10).addSwitch(classBuilder, MEMBERS_INJECTION_SIGNATURE, method, cases, 10, THROW);
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  private void membersInjection0(final int index, final java.lang.Object instance) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        a0(instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private void membersInjection1(final int index, final java.lang.Object instance) {",
+        "    switch (index) {",
+        "      case 1:",
+        "        a1(instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private void membersInjection(final int index, final java.lang.Object instance) {",
+        "    switch (index / 1) {",
+        "      case 0:",
+        "        membersInjection0(index, instance);",
+        "        return;",
+        "      case 1:",
+        "        membersInjection1(index, instance);",
+        "        return;",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "}"));
+  }
+
+  @Test public void splitStaticSwitch() {
+    MethodSpec signature = MethodSpec.methodBuilder("provision")
+        .addModifiers(STATIC)
+        .returns(Object.class)
+        .addParameter(PROVISION_SIGNATURE.parameters.get(0))
+        .build();
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = provisionMethod().addModifiers(STATIC);
+    new MethodSplitter(10).addSwitch(classBuilder, signature, method, provisionCases(2), 10, THROW);
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  private static java.lang.Object provision0(final int index) {",
+        "    switch (index) {",
+        "      case 0:",
+        "        return a0();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private static java.lang.Object provision1(final int index) {",
+        "    switch (index) {",
+        "      case 1:",
+        "        return a1();",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "",
+        "  private static java.lang.Object provision(final int index) {",
+        "    switch (index / 1) {",
+        "      case 0:",
+        "        return provision0(index);",
+        "      case 1:",
+        "        return provision1(index);",
+        "      default:",
+        "        throw new IllegalStateException();",
+        "    }",
+        "  }",
+        "}"));
+  }
+
+  @Test public void chainFittingInOneMethod() {
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = computeValueMethod();
+    new MethodSplitter(30).addChain(classBuilder, COMPUTE_VALUE_SIGNATURE, method, EMPTY, chainCases(3), EMPTY, 10);
+    method.addCode("return -1;\n");
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  protected java.lang.Integer computeValue(final java.lang.Class<?> type) {",
+        "    if (type == A0.class) {",
+        "      return 0;",
+        "    }",
+        "    if (type == A1.class) {",
+        "      return 1;",
+        "    }",
+        "    if (type == A2.class) {",
+        "      return 2;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "}"));
+  }
+
+  @Test public void splitChain() {
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = computeValueMethod();
+    new MethodSplitter(20).addChain(classBuilder, COMPUTE_VALUE_SIGNATURE, method,
+        CodeBlock.builder().add("// prefix\n").build(), chainCases(3), CodeBlock.builder().add("// suffix\n").build(), 10);
+    method.addCode("return -1;\n");
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  private int computeValue0(final java.lang.Class<?> type) {",
+        "    // prefix",
+        "    if (type == A0.class) {",
+        "      return 0;",
+        "    }",
+        "    if (type == A1.class) {",
+        "      return 1;",
+        "    }",
+        "    // suffix",
+        "    return -1;",
+        "  }",
+        "",
+        "  private int computeValue1(final java.lang.Class<?> type) {",
+        "    // prefix",
+        "    if (type == A2.class) {",
+        "      return 2;",
+        "    }",
+        "    // suffix",
+        "    return -1;",
+        "  }",
+        "",
+        "  protected java.lang.Integer computeValue(final java.lang.Class<?> type) {",
+        "    int match = computeValue0(type);",
+        "    if (match < 0) {",
+        "      match = computeValue1(type);",
+        "    }",
+        "    if (match >= 0) {",
+        "      return match;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "}"));
+  }
+
+  @Test public void splitChainOfVaryingSizes() {
+    TypeSpec.Builder classBuilder = TypeSpec.classBuilder("Foo");
+    MethodSpec.Builder method = computeValueMethod();
+    new MethodSplitter(20).addChain(classBuilder, COMPUTE_VALUE_SIGNATURE, method, EMPTY, chainCases(3), EMPTY,
+        Arrays.asList(15, 10, 10));
+    method.addCode("return -1;\n");
+
+    assertThat(classBuilder.addMethod(method.build()).build().toString()).isEqualTo(lines(
+        "class Foo {",
+        "  private int computeValue0(final java.lang.Class<?> type) {",
+        "    if (type == A0.class) {",
+        "      return 0;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "",
+        "  private int computeValue1(final java.lang.Class<?> type) {",
+        "    if (type == A1.class) {",
+        "      return 1;",
+        "    }",
+        "    if (type == A2.class) {",
+        "      return 2;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "",
+        "  protected java.lang.Integer computeValue(final java.lang.Class<?> type) {",
+        "    int match = computeValue0(type);",
+        "    if (match < 0) {",
+        "      match = computeValue1(type);",
+        "    }",
+        "    if (match >= 0) {",
+        "      return match;",
+        "    }",
+        "    return -1;",
+        "  }",
+        "}"));
+  }
+
+  private static MethodSpec.Builder provisionMethod() {
+    return MethodSpec.methodBuilder("provision")
+        .addModifiers(PRIVATE)
+        .returns(Object.class)
+        .addParameter(PROVISION_SIGNATURE.parameters.get(0));
+  }
+
+  private static MethodSpec.Builder computeValueMethod() {
+    return MethodSpec.methodBuilder("computeValue")
+        .addModifiers(PROTECTED)
+        .returns(TypeName.get(Integer.class))
+        .addParameter(COMPUTE_VALUE_SIGNATURE.parameters.get(0));
+  }
+
+  private static List<CodeBlock> provisionCases(int count) {
+    List<CodeBlock> cases = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      cases.add(CodeBlock.builder().add("return a$L();\n", i).build());
+    }
+    return cases;
+  }
+
+  private static List<CodeBlock> chainCases(int count) {
+    List<CodeBlock> cases = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      cases.add(CodeBlock.builder()
+          .add(
+              "if (type == A$L.class) {\n$>" +
+              "return $L;\n" +
+              "$<}\n",
+              i, i)
+          .build());
+    }
+    return cases;
+  }
+
+  private static String lines(String... lines) {
+    return Joiner.on('\n').join(lines) + "\n";
+  }
+}
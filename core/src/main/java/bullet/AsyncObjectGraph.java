@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous counterpart to {@link ObjectGraph}, generated for Dagger‡ production components, whose methods return
+ * {@code ListenableFuture}s.
+ *
+ * <p>Generated classes declare their {@code get} method as returning a {@code ListenableFuture} rather than a
+ * {@link Future}, so that callbacks can be added to them without blocking.
+ */
+public interface AsyncObjectGraph {
+  /**
+   * Returns a future instance of type.
+   *
+   * @throws java.lang.IllegalArgumentException if type is not one of this object graph's producible types.
+   */
+  <T> Future<T> get(Class<T> type);
+
+  /**
+   * Returns whether {@link #get(Class) get(type)} would return a future rather than throw.
+   */
+  boolean canProduce(Class<?> type);
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import dagger.MembersInjector;
+
+/**
+ * Implements {@link ObjectGraph#injectAll(Collection)} and {@link ObjectGraph#injectAll(Collection, Executor)} on top
+ * of {@link ObjectGraph#membersInjector(Class)}. Called by generated code.
+ */
+public final class BatchInjection {
+  /** Chunks smaller than this aren't worth the hand-off to another thread. */
+  private static final int MIN_CHUNK_SIZE = 256;
+  /** Number of chunks per available processor, so that chunks of uneven cost still balance across threads. */
+  private static final int CHUNKS_PER_PROCESSOR = 4;
+
+  private BatchInjection() {
+  }
+
+  /** Injects the members of all instances, looking up the members injector once per distinct runtime type. */
+  public static void injectAll(ObjectGraph graph, Collection<?> instances) {
+    for (Group group : group(graph, instances)) {
+      inject(group.injector, group.instances, 0, group.instances.size());
+    }
+  }
+
+  /**
+   * Same as {@link #injectAll(ObjectGraph, Collection)} but splits the instances into chunks injected in parallel by
+   * executor, and returns once all of them have been injected.
+   */
+  public static void injectAll(ObjectGraph graph, Collection<?> instances, Executor executor) {
+    List<Group> groups = group(graph, instances);
+    int chunkSize = Math.max(MIN_CHUNK_SIZE,
+        instances.size() / (CHUNKS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors()) + 1);
+    List<Runnable> chunks = new ArrayList<>();
+    for (final Group group : groups) {
+      for (int start = 0; start < group.instances.size(); start += chunkSize) {
+        final int from = start;
+        final int to = Math.min(start + chunkSize, group.instances.size());
+        chunks.add(new Runnable() {
+          @Override
+          public void run() {
+            inject(group.injector, group.instances, from, to);
+          }
+        });
+      }
+    }
+    Tasks.runAll(executor, chunks);
+  }
+
+  /**
+   * Groups instances by runtime type, looking up the members injector of every group before any instance is injected.
+   *
+   * @throws java.lang.IllegalArgumentException if the runtime type of any instance is not one of graph's injectable types.
+   */
+  private static List<Group> group(ObjectGraph graph, Collection<?> instances) {
+    Map<Class<?>, Group> groups = new LinkedHashMap<>();
+    Group last = null;
+    for (Object instance : instances) {
+      // Batches are often made of runs of instances of the same type, so avoid the lookup in that case.
+      if (last == null || last.type != instance.getClass()) {
+        last = groups.get(instance.getClass());
+        if (last == null) {
+          last = new Group(graph, instance.getClass());
+          groups.put(last.type, last);
+        }
+      }
+      last.instances.add(instance);
+    }
+    return new ArrayList<>(groups.values());
+  }
+
+  private static void inject(MembersInjector<Object> injector, List<Object> instances, int from, int to) {
+    for (int i = from; i < to; i++) {
+      injector.injectMembers(instances.get(i));
+    }
+  }
+
+  private static final class Group {
+    final Class<?> type;
+    final MembersInjector<Object> injector;
+    final List<Object> instances = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    Group(ObjectGraph graph, Class<?> type) {
+      this.type = type;
+      this.injector = (MembersInjector<Object>) graph.membersInjector(type);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+/**
+ * Identifies a binding of a given generated object graph class by its index, so that it can be provided without any
+ * lookup.
+ *
+ * <p>Binding keys are generated as constants in the {@code Keys} nested class of the generated object graph, one per
+ * provision method of the component, e.g. {@code BulletFooComponent.Keys.USER_SERVICE} for a
+ * {@code UserService userService()} component method. They can be used with any instance of that generated class.
+ */
+public final class BindingKey<T> {
+  private final Class<? extends ObjectGraph> graphType;
+  private final int id;
+  private final String name;
+
+  /** Called by generated code. */
+  public BindingKey(Class<? extends ObjectGraph> graphType, int id, String name) {
+    this.graphType = graphType;
+    this.id = id;
+    this.name = name;
+  }
+
+  /** Returns the generated object graph class this key belongs to. */
+  public Class<? extends ObjectGraph> getGraphType() {
+    return graphType;
+  }
+
+  /** Returns the index of the binding in the generated object graph class. */
+  public int getId() {
+    return id;
+  }
+
+  /** Returns the name of the component method for the binding. */
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return graphType.getName() + ".Keys." + name;
+  }
+}
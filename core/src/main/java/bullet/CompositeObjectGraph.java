@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import javax.inject.Provider;
+
+import dagger.MembersInjector;
+
+/**
+ * An object graph composed of several independent object graphs, e.g. one per component of a modular application.
+ *
+ * <p>Each type or key is routed to the one member graph that can provide or inject it. Routes are computed on first
+ * use and cached in a single index for the composite graph, so that later lookups cost one probe and one dispatch
+ * whatever the number of member graphs. Only routes to member graphs are cached, so that looking up arbitrary keys
+ * doesn't grow the index past the number of keys the member graphs can provide.
+ *
+ * <p>A type or key that more than one member graph can provide (or inject) is ambiguous: all methods, including
+ * {@code tryGet}, {@code canProvide} and {@code canInject}, throw an {@link IllegalArgumentException} for it. This is
+ * the case for all the types of member graphs wrapping the same component.
+ */
+public final class CompositeObjectGraph implements ObjectGraph {
+
+  /** Returns an object graph composed of the given graphs. */
+  public static CompositeObjectGraph of(ObjectGraph... graphs) {
+    return of(Arrays.asList(graphs));
+  }
+
+  /** Returns an object graph composed of the given graphs. */
+  public static CompositeObjectGraph of(List<? extends ObjectGraph> graphs) {
+    return new CompositeObjectGraph(graphs.toArray(new ObjectGraph[graphs.size()]));
+  }
+
+  private final ObjectGraph[] graphs;
+
+  // Unroutable types are routed to the EmptyObjectGraph, and ambiguous ones to an AmbiguousRoute, so that neither needs
+  // special handling (nor computing again).
+  private final ClassValue<ObjectGraph> provisionRoutes = new ClassValue<ObjectGraph>() {
+    @Override
+    protected ObjectGraph computeValue(Class<?> type) {
+      ObjectGraph route = EmptyObjectGraph.INSTANCE;
+      for (ObjectGraph graph : graphs) {
+        if (graph.canProvide(type)) {
+          route = route(route, graph, type);
+        }
+      }
+      return route;
+    }
+  };
+  private final ClassValue<ObjectGraph> membersInjectionRoutes = new ClassValue<ObjectGraph>() {
+    @Override
+    protected ObjectGraph computeValue(Class<?> type) {
+      ObjectGraph route = EmptyObjectGraph.INSTANCE;
+      for (ObjectGraph graph : graphs) {
+        if (graph.canInject(type)) {
+          route = route(route, graph, type);
+        }
+      }
+      return route;
+    }
+  };
+  private final ConcurrentMap<Key<?>, ObjectGraph> keyRoutes = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, ObjectGraph> bindingKeyRoutes = new ConcurrentHashMap<>();
+
+  private CompositeObjectGraph(ObjectGraph[] graphs) {
+    this.graphs = graphs;
+  }
+
+  /** Returns graph as the new route, unless another graph has already been found. */
+  private static ObjectGraph route(ObjectGraph route, ObjectGraph graph, Object typeOrKey) {
+    if (route instanceof AmbiguousRoute) {
+      return route;
+    }
+    if (route != EmptyObjectGraph.INSTANCE) {
+      return new AmbiguousRoute("Ambiguous " + typeOrKey + ": provided by both "
+          + route.getClass().getName() + " and " + graph.getClass().getName());
+    }
+    return graph;
+  }
+
+  /** Returns whether route leads to a member graph, throwing if it's ambiguous. */
+  private static boolean isRouted(ObjectGraph route) {
+    if (route instanceof AmbiguousRoute) {
+      throw ((AmbiguousRoute) route).exception();
+    }
+    return route != EmptyObjectGraph.INSTANCE;
+  }
+
+  private ObjectGraph route(Key<?> key) {
+    ObjectGraph route = keyRoutes.get(key);
+    if (route == null) {
+      route = EmptyObjectGraph.INSTANCE;
+      for (ObjectGraph graph : graphs) {
+        if (graph.canProvide(key)) {
+          route = route(route, graph, key);
+        }
+      }
+      if (route != EmptyObjectGraph.INSTANCE) {
+        keyRoutes.putIfAbsent(key, route);
+      }
+    }
+    return route;
+  }
+
+  private ObjectGraph route(BindingKey<?> key) {
+    ObjectGraph route = bindingKeyRoutes.get(key.getGraphType());
+    if (route == null) {
+      route = EmptyObjectGraph.INSTANCE;
+      for (ObjectGraph graph : graphs) {
+        if (graph.canProvide(key)) {
+          route = route(route, graph, key);
+        }
+      }
+      if (route != EmptyObjectGraph.INSTANCE) {
+        bindingKeyRoutes.putIfAbsent(key.getGraphType(), route);
+      }
+    }
+    return route;
+  }
+
+  @Override
+  public <T> T get(Class<T> type) {
+    return provisionRoutes.get(type).get(type);
+  }
+
+  @Override
+  public <T> T inject(T instance) {
+    return membersInjectionRoutes.get(instance.getClass()).inject(instance);
+  }
+
+  @Override
+  public <T> Provider<T> provider(Class<T> type) {
+    return provisionRoutes.get(type).provider(type);
+  }
+
+  @Override
+  public <T> MembersInjector<T> membersInjector(Class<T> type) {
+    return membersInjectionRoutes.get(type).membersInjector(type);
+  }
+
+  @Override
+  public <T> T tryGet(Class<T> type) {
+    return provisionRoutes.get(type).tryGet(type);
+  }
+
+  @Override
+  public boolean canProvide(Class<?> type) {
+    return isRouted(provisionRoutes.get(type));
+  }
+
+  @Override
+  public boolean canInject(Class<?> type) {
+    return isRouted(membersInjectionRoutes.get(type));
+  }
+
+  @Override
+  public void injectAll(Collection<?> instances) {
+    BatchInjection.injectAll(this, instances);
+  }
+
+  @Override
+  public void injectAll(Collection<?> instances, Executor executor) {
+    BatchInjection.injectAll(this, instances, executor);
+  }
+
+  @Override
+  public <T> T get(Key<T> key) {
+    return route(key).get(key);
+  }
+
+  @Override
+  public <T> Provider<T> provider(Key<T> key) {
+    return route(key).provider(key);
+  }
+
+  @Override
+  public <T> T tryGet(Key<T> key) {
+    return route(key).tryGet(key);
+  }
+
+  @Override
+  public boolean canProvide(Key<?> key) {
+    return isRouted(route(key));
+  }
+
+  /**
+   * Returns an instance for key, generated for the class of one of the member graphs.
+   *
+   * @throws java.lang.IllegalArgumentException if key has been generated for the class of none, or several, of the
+   *     member graphs.
+   */
+  @Override
+  public <T> T get(BindingKey<T> key) {
+    return route(key).get(key);
+  }
+
+  @Override
+  public boolean canProvide(BindingKey<?> key) {
+    return isRouted(route(key));
+  }
+
+  @Override
+  public int getInt(Key<Integer> key) {
+    return route(key).getInt(key);
+  }
+
+  @Override
+  public long getLong(Key<Long> key) {
+    return route(key).getLong(key);
+  }
+
+  @Override
+  public double getDouble(Key<Double> key) {
+    return route(key).getDouble(key);
+  }
+
+  @Override
+  public boolean getBoolean(Key<Boolean> key) {
+    return route(key).getBoolean(key);
+  }
+
+  /** Route for ambiguous types and keys, throwing on every call. */
+  private static final class AmbiguousRoute extends ForwardingObjectGraph {
+    private final String message;
+
+    AmbiguousRoute(String message) {
+      this.message = message;
+    }
+
+    IllegalArgumentException exception() {
+      return new IllegalArgumentException(message);
+    }
+
+    @Override
+    protected ObjectGraph delegate() {
+      throw exception();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+import javax.inject.Provider;
+
+import dagger.MembersInjector;
+
+/**
+ * An object graph that cannot provide or inject anything, used as the parent of generated object graphs that have
+ * been created without one.
+ */
+public final class EmptyObjectGraph implements ObjectGraph {
+  public static final ObjectGraph INSTANCE = new EmptyObjectGraph();
+
+  private EmptyObjectGraph() {
+  }
+
+  @Override
+  public <T> T get(Class<T> type) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public <T> T inject(T instance) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public <T> Provider<T> provider(Class<T> type) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public <T> MembersInjector<T> membersInjector(Class<T> type) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public <T> T tryGet(Class<T> type) {
+    return null;
+  }
+
+  @Override
+  public boolean canProvide(Class<?> type) {
+    return false;
+  }
+
+  @Override
+  public boolean canInject(Class<?> type) {
+    return false;
+  }
+
+  @Override
+  public void injectAll(Collection<?> instances) {
+    BatchInjection.injectAll(this, instances);
+  }
+
+  @Override
+  public void injectAll(Collection<?> instances, Executor executor) {
+    BatchInjection.injectAll(this, instances, executor);
+  }
+
+  @Override
+  public <T> T get(Key<T> key) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public <T> Provider<T> provider(Key<T> key) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public <T> T tryGet(Key<T> key) {
+    return null;
+  }
+
+  @Override
+  public boolean canProvide(Key<?> key) {
+    return false;
+  }
+
+  @Override
+  public <T> T get(BindingKey<T> key) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public boolean canProvide(BindingKey<?> key) {
+    return false;
+  }
+
+  @Override
+  public int getInt(Key<Integer> key) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public long getLong(Key<Long> key) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public double getDouble(Key<Double> key) {
+    throw new IllegalArgumentException();
+  }
+
+  @Override
+  public boolean getBoolean(Key<Boolean> key) {
+    throw new IllegalArgumentException();
+  }
+}
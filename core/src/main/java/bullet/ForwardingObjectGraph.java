@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+import javax.inject.Provider;
+
+import dagger.MembersInjector;
+
+/**
+ * An object graph that forwards all its method calls to another object graph. Subclasses override some methods to
+ * change or add to the behavior of the delegate object graph.
+ */
+public abstract class ForwardingObjectGraph implements ObjectGraph {
+
+  /** Constructor for use by subclasses. */
+  protected ForwardingObjectGraph() {
+  }
+
+  /** Returns the object graph method calls are forwarded to. */
+  protected abstract ObjectGraph delegate();
+
+  @Override
+  public <T> T get(Class<T> type) {
+    return delegate().get(type);
+  }
+
+  @Override
+  public <T> T inject(T instance) {
+    return delegate().inject(instance);
+  }
+
+  @Override
+  public <T> Provider<T> provider(Class<T> type) {
+    return delegate().provider(type);
+  }
+
+  @Override
+  public <T> MembersInjector<T> membersInjector(Class<T> type) {
+    return delegate().membersInjector(type);
+  }
+
+  @Override
+  public <T> T tryGet(Class<T> type) {
+    return delegate().tryGet(type);
+  }
+
+  @Override
+  public boolean canProvide(Class<?> type) {
+    return delegate().canProvide(type);
+  }
+
+  @Override
+  public boolean canInject(Class<?> type) {
+    return delegate().canInject(type);
+  }
+
+  @Override
+  public void injectAll(Collection<?> instances) {
+    delegate().injectAll(instances);
+  }
+
+  @Override
+  public void injectAll(Collection<?> instances, Executor executor) {
+    delegate().injectAll(instances, executor);
+  }
+
+  @Override
+  public <T> T get(Key<T> key) {
+    return delegate().get(key);
+  }
+
+  @Override
+  public <T> Provider<T> provider(Key<T> key) {
+    return delegate().provider(key);
+  }
+
+  @Override
+  public <T> T tryGet(Key<T> key) {
+    return delegate().tryGet(key);
+  }
+
+  @Override
+  public boolean canProvide(Key<?> key) {
+    return delegate().canProvide(key);
+  }
+
+  @Override
+  public <T> T get(BindingKey<T> key) {
+    return delegate().get(key);
+  }
+
+  @Override
+  public boolean canProvide(BindingKey<?> key) {
+    return delegate().canProvide(key);
+  }
+
+  @Override
+  public int getInt(Key<Integer> key) {
+    return delegate().getInt(key);
+  }
+
+  @Override
+  public long getLong(Key<Long> key) {
+    return delegate().getLong(key);
+  }
+
+  @Override
+  public double getDouble(Key<Double> key) {
+    return delegate().getDouble(key);
+  }
+
+  @Override
+  public boolean getBoolean(Key<Boolean> key) {
+    return delegate().getBoolean(key);
+  }
+}
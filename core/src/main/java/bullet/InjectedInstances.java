@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks the instances whose members have already been injected by an object graph, so that injecting them again is
+ * a no-op. Called by generated code when the {@code bullet.idempotentInject} processor option is enabled.
+ *
+ * <p>Instances are compared by identity and weakly referenced, so they're not kept from being garbage collected;
+ * entries for collected instances are expunged as new instances are added. This class is thread-safe and doesn't lock.
+ */
+public final class InjectedInstances {
+  private final ConcurrentMap<IdentityWeakReference, Boolean> instances = new ConcurrentHashMap<>();
+  private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+  // Reused for lookups, so that contains() doesn't allocate.
+  private static final ThreadLocal<Lookup> LOOKUP = new ThreadLocal<Lookup>() {
+    @Override
+    protected Lookup initialValue() {
+      return new Lookup();
+    }
+  };
+
+  /** Returns whether instance has been {@link #add(Object) added}. */
+  public boolean contains(Object instance) {
+    Lookup lookup = LOOKUP.get();
+    lookup.referent = instance;
+    lookup.hashCode = System.identityHashCode(instance);
+    try {
+      return instances.containsKey(lookup);
+    } finally {
+      lookup.referent = null;
+    }
+  }
+
+  /** Returns the number of instances tracked, including garbage collected ones that haven't been expunged yet. */
+  public int size() {
+    return instances.size();
+  }
+
+  /** Records that the members of instance have been injected. */
+  public void add(Object instance) {
+    for (Reference<?> stale; (stale = queue.poll()) != null; ) {
+      instances.remove(stale);
+    }
+    instances.put(new IdentityWeakReference(instance, queue), Boolean.TRUE);
+  }
+
+  /**
+   * Only used as an argument to map lookups, which compare keys with the argument's equals(), so it's only equal to
+   * references to the same referent.
+   */
+  private static final class Lookup {
+    Object referent;
+    int hashCode;
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof IdentityWeakReference && ((IdentityWeakReference) obj).get() == referent;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class IdentityWeakReference extends WeakReference<Object> {
+    private final int hashCode;
+
+    IdentityWeakReference(Object referent, ReferenceQueue<Object> queue) {
+      super(referent, queue);
+      this.hashCode = System.identityHashCode(referent);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof IdentityWeakReference)) {
+        return false;
+      }
+      // Cleared references are only equal to themselves, so they can be expunged.
+      Object referent = get();
+      return referent != null && referent == ((IdentityWeakReference) obj).get();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
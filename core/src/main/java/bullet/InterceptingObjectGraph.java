@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+/**
+ * An object graph that changes how instances of some of the types or keys of another object graph are provided, through
+ * a {@link ProviderInterceptor}, e.g. to cache expensive unscoped bindings:
+ * <pre><code>
+ * ObjectGraph graph = InterceptingObjectGraph.of(new BulletMyComponent(component), Memoization.maximumSize(100),
+ *     Parser.class, Formatter.class);
+ * </code></pre>
+ *
+ * <p>The providers of the intercepted keys are looked up and intercepted once, when the object graph is created; all
+ * other types and keys, and members injection, are forwarded to the other object graph. Only the lookups by
+ * {@link Class} and {@link Key} are intercepted though: {@link BindingKey}s and the primitive getters are tied to the
+ * object graph that created them and bypass interception.
+ *
+ * <p>Several interceptors can be applied by wrapping intercepting object graphs into each other.
+ */
+public final class InterceptingObjectGraph extends ForwardingObjectGraph {
+
+  /**
+   * Returns an object graph intercepting the provision of the given types in graph.
+   *
+   * @throws java.lang.IllegalArgumentException if any of the types is not one of graph's provisioned types.
+   */
+  public static InterceptingObjectGraph of(ObjectGraph graph, ProviderInterceptor interceptor, Class<?>... types) {
+    Key<?>[] keys = new Key<?>[types.length];
+    for (int i = 0; i < types.length; i++) {
+      keys[i] = Key.get(types[i]);
+    }
+    return of(graph, interceptor, keys);
+  }
+
+  /**
+   * Returns an object graph intercepting the provision of the given keys in graph.
+   *
+   * @throws java.lang.IllegalArgumentException if any of the keys is not one of graph's provisioned keys.
+   */
+  public static InterceptingObjectGraph of(ObjectGraph graph, ProviderInterceptor interceptor, Key<?>... keys) {
+    return of(graph, interceptor, Arrays.asList(keys));
+  }
+
+  /**
+   * Returns an object graph intercepting the provision of the given keys in graph.
+   *
+   * @throws java.lang.IllegalArgumentException if any of the keys is not one of graph's provisioned keys.
+   */
+  public static InterceptingObjectGraph of(ObjectGraph graph, ProviderInterceptor interceptor,
+      Collection<? extends Key<?>> keys) {
+    return new InterceptingObjectGraph(graph, interceptor, keys);
+  }
+
+  private final ObjectGraph delegate;
+  // Both maps are only written to in the constructor, so they're safe to read from any thread afterwards.
+  private final Map<Key<?>, Provider<?>> providersByKey = new HashMap<>();
+  private final Map<Class<?>, Provider<?>> providersByType = new HashMap<>();
+
+  private InterceptingObjectGraph(ObjectGraph delegate, ProviderInterceptor interceptor,
+      Collection<? extends Key<?>> keys) {
+    this.delegate = delegate;
+    for (Key<?> key : keys) {
+      Provider<?> provider = intercept(interceptor, key);
+      providersByKey.put(key, provider);
+      if (key.getQualifierType() == null && key.getType() instanceof Class) {
+        providersByType.put((Class<?>) key.getType(), provider);
+      }
+    }
+  }
+
+  private <T> Provider<T> intercept(ProviderInterceptor interceptor, Key<T> key) {
+    return interceptor.intercept(key, delegate.provider(key));
+  }
+
+  @Override
+  protected ObjectGraph delegate() {
+    return delegate;
+  }
+
+  @Override
+  public <T> T get(Class<T> type) {
+    Provider<T> provider = interceptedProvider(type);
+    return provider == null ? delegate.get(type) : provider.get();
+  }
+
+  @Override
+  public <T> Provider<T> provider(Class<T> type) {
+    Provider<T> provider = interceptedProvider(type);
+    return provider == null ? delegate.provider(type) : provider;
+  }
+
+  @Override
+  public <T> T tryGet(Class<T> type) {
+    Provider<T> provider = interceptedProvider(type);
+    return provider == null ? delegate.tryGet(type) : provider.get();
+  }
+
+  @Override
+  public <T> T get(Key<T> key) {
+    Provider<T> provider = interceptedProvider(key);
+    return provider == null ? delegate.get(key) : provider.get();
+  }
+
+  @Override
+  public <T> Provider<T> provider(Key<T> key) {
+    Provider<T> provider = interceptedProvider(key);
+    return provider == null ? delegate.provider(key) : provider;
+  }
+
+  @Override
+  public <T> T tryGet(Key<T> key) {
+    Provider<T> provider = interceptedProvider(key);
+    return provider == null ? delegate.tryGet(key) : provider.get();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Provider<T> interceptedProvider(Class<T> type) {
+    return (Provider<T>) providersByType.get(type);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Provider<T> interceptedProvider(Key<T> key) {
+    return (Provider<T>) providersByKey.get(key);
+  }
+}
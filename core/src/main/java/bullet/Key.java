@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Objects;
+
+import javax.inject.Named;
+import javax.inject.Qualifier;
+
+/**
+ * Identifies a binding by its type and optional {@link Qualifier qualifier}, e.g. {@code @Named("readPool") DataSource}.
+ *
+ * <p>Keys for parameterized types are created by subclassing, capturing the type argument, à la {@code TypeLiteral}:
+ * <pre><code>
+ * Key&lt;Cache&lt;String, User&gt;&gt; key = new Key&lt;Cache&lt;String, User&gt;&gt;() {};
+ * </code></pre>
+ *
+ * <p>Keys are immutable and compute their hash code once. Looking up the same key instance over and over is cheapest,
+ * so hold on to keys (e.g. in constants) rather than creating them each time.
+ */
+public class Key<T> {
+
+  /** Returns a key for the unqualified type. */
+  public static <T> Key<T> get(Class<T> type) {
+    return new Key<T>(type, null, null);
+  }
+
+  /**
+   * Returns a key for the type qualified with the given qualifier instance.
+   *
+   * @throws java.lang.IllegalArgumentException if qualifier is not annotated with {@link Qualifier @Qualifier}.
+   */
+  public static <T> Key<T> get(Class<T> type, Annotation qualifier) {
+    return new Key<T>(type, qualifier.annotationType(), qualifier);
+  }
+
+  /**
+   * Returns a key for the type qualified with the given marker qualifier, i.e. a qualifier without attributes.
+   *
+   * @throws java.lang.IllegalArgumentException if qualifierType is not annotated with {@link Qualifier @Qualifier},
+   *     or has attributes.
+   */
+  public static <T> Key<T> get(Class<T> type, Class<? extends Annotation> qualifierType) {
+    return new Key<T>(type, qualifierType, null);
+  }
+
+  /**
+   * Returns a key for the unqualified type, which can be a parameterized type.
+   *
+   * @throws java.lang.IllegalArgumentException if type is not fully specified, i.e. contains type variables.
+   */
+  public static Key<?> get(Type type) {
+    return new Key<Object>(type, null, null);
+  }
+
+  /**
+   * Returns a key for the type, which can be a parameterized type, qualified with the given qualifier instance.
+   *
+   * @throws java.lang.IllegalArgumentException if type is not fully specified, i.e. contains type variables, or
+   *     qualifier is not annotated with {@link Qualifier @Qualifier}.
+   */
+  public static Key<?> get(Type type, Annotation qualifier) {
+    return new Key<Object>(type, qualifier.annotationType(), qualifier);
+  }
+
+  /** Returns a key for the type qualified with {@link Named @Named(name)}. */
+  public static <T> Key<T> named(Class<T> type, String name) {
+    return new Key<T>(type, Named.class, new NamedImpl(name));
+  }
+
+  private final Type type;
+  private final Class<? super T> rawType;
+  private final String typeName;
+  private final Class<? extends Annotation> qualifierType;
+  private final Annotation qualifier;
+  private final int hashCode;
+
+  /**
+   * Creates an unqualified key for the type argument of the subclass.
+   *
+   * @throws java.lang.IllegalArgumentException if the type argument is not fully specified, i.e. contains type
+   *     variables.
+   */
+  protected Key() {
+    this(null, null);
+  }
+
+  /**
+   * Creates a key for the type argument of the subclass, qualified with the given qualifier instance.
+   *
+   * @throws java.lang.IllegalArgumentException if the type argument is not fully specified, i.e. contains type
+   *     variables, or qualifier is not annotated with {@link Qualifier @Qualifier}.
+   */
+  protected Key(Annotation qualifier) {
+    this(qualifier.annotationType(), qualifier);
+  }
+
+  /**
+   * Creates a key for the type argument of the subclass, qualified with the given marker qualifier.
+   *
+   * @throws java.lang.IllegalArgumentException if the type argument is not fully specified, i.e. contains type
+   *     variables, or qualifierType is not annotated with {@link Qualifier @Qualifier}, or has attributes.
+   */
+  protected Key(Class<? extends Annotation> qualifierType) {
+    this(qualifierType, null);
+  }
+
+  private Key(Class<? extends Annotation> qualifierType, Annotation qualifier) {
+    Type superclass = getClass().getGenericSuperclass();
+    if (!(superclass instanceof ParameterizedType) || ((ParameterizedType) superclass).getRawType() != Key.class) {
+      throw new IllegalStateException("Key must be directly subclassed with a type argument");
+    }
+    this.type = ((ParameterizedType) superclass).getActualTypeArguments()[0];
+    this.rawType = rawType(type);
+    this.typeName = typeName(type);
+    this.qualifierType = checkQualifier(qualifierType, qualifier);
+    this.qualifier = normalizeQualifier(qualifierType, qualifier);
+    this.hashCode = Objects.hash(typeName, qualifierType, this.qualifier);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Key(Type type, Class<? extends Annotation> qualifierType, Annotation qualifier) {
+    this.type = Objects.requireNonNull(type);
+    this.rawType = (Class<? super T>) rawType(type);
+    this.typeName = typeName(type);
+    this.qualifierType = checkQualifier(qualifierType, qualifier);
+    this.qualifier = normalizeQualifier(qualifierType, qualifier);
+    this.hashCode = Objects.hash(typeName, qualifierType, this.qualifier);
+  }
+
+  private static Class<? extends Annotation> checkQualifier(Class<? extends Annotation> qualifierType, Annotation qualifier) {
+    if (qualifierType == null) {
+      return null;
+    }
+    if (!qualifierType.isAnnotationPresent(Qualifier.class)) {
+      throw new IllegalArgumentException(qualifierType.getName() + " is not a qualifier");
+    }
+    if (qualifier == null && !isMarker(qualifierType)) {
+      throw new IllegalArgumentException(qualifierType.getName() + " has attributes, use an instance of it instead");
+    }
+    return qualifierType;
+  }
+
+  private static Annotation normalizeQualifier(Class<? extends Annotation> qualifierType, Annotation qualifier) {
+    // Normalize marker annotations so they're equal to keys created from their type
+    return qualifier == null || isMarker(qualifierType) ? null : qualifier;
+  }
+
+  private static boolean isMarker(Class<? extends Annotation> qualifierType) {
+    return qualifierType.getDeclaredMethods().length == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Class<? super T> rawType(Type type) {
+    if (type instanceof Class) {
+      return (Class<? super T>) type;
+    } else if (type instanceof ParameterizedType) {
+      return (Class<? super T>) ((ParameterizedType) type).getRawType();
+    } else if (type instanceof GenericArrayType) {
+      return (Class<? super T>) Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+    }
+    throw new IllegalArgumentException("Not a fully specified type: " + type);
+  }
+
+  /**
+   * Returns the canonical name of the type, as computed by the annotation processor for component methods: binary
+   * names of classes, with type arguments separated by {@code ", "}.
+   */
+  private static String typeName(Type type) {
+    if (type instanceof Class) {
+      Class<?> cls = (Class<?>) type;
+      return cls.isArray() ? typeName(cls.getComponentType()) + "[]" : cls.getName();
+    } else if (type instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+      StringBuilder sb = new StringBuilder();
+      if (parameterizedType.getOwnerType() instanceof ParameterizedType) {
+        sb.append(typeName(parameterizedType.getOwnerType())).append('$').append(rawType.getSimpleName());
+      } else {
+        sb.append(rawType.getName());
+      }
+      Type[] typeArguments = parameterizedType.getActualTypeArguments();
+      for (int i = 0; i < typeArguments.length; i++) {
+        sb.append(i == 0 ? "<" : ", ").append(typeName(typeArguments[i]));
+      }
+      return typeArguments.length == 0 ? sb.toString() : sb.append('>').toString();
+    } else if (type instanceof GenericArrayType) {
+      return typeName(((GenericArrayType) type).getGenericComponentType()) + "[]";
+    } else if (type instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) type;
+      if (wildcardType.getLowerBounds().length > 0) {
+        return "? super " + typeName(wildcardType.getLowerBounds()[0]);
+      } else if (wildcardType.getUpperBounds()[0] != Object.class) {
+        return "? extends " + typeName(wildcardType.getUpperBounds()[0]);
+      }
+      return "?";
+    }
+    throw new IllegalArgumentException("Not a fully specified type: " + type);
+  }
+
+  /** Returns the type of the binding, which might be a parameterized type. */
+  public Type getType() {
+    return type;
+  }
+
+  /** Returns the raw type of the binding. */
+  public Class<? super T> getRawType() {
+    return rawType;
+  }
+
+  /**
+   * Returns the canonical name of the type of the binding, e.g. {@code java.util.Map<java.lang.String, com.example.Outer$Inner>}.
+   * This is what generated object graphs look parameterized types up with.
+   */
+  public String getTypeName() {
+    return typeName;
+  }
+
+  /** Returns the type of the qualifier, or {@code null} if this key is unqualified. */
+  public Class<? extends Annotation> getQualifierType() {
+    return qualifierType;
+  }
+
+  /** Returns the qualifier, or {@code null} if this key is unqualified or qualified with a marker qualifier. */
+  public Annotation getQualifier() {
+    return qualifier;
+  }
+
+  @Override
+  public final boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof Key)) {
+      return false;
+    }
+    Key<?> other = (Key<?>) obj;
+    return this.hashCode == other.hashCode
+        && this.rawType == other.rawType
+        && this.qualifierType == other.qualifierType
+        && this.type.equals(other.type)
+        && Objects.equals(this.qualifier, other.qualifier);
+  }
+
+  @Override
+  public final int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public final String toString() {
+    if (qualifier != null) {
+      return qualifier + " " + typeName;
+    }
+    if (qualifierType != null) {
+      return "@" + qualifierType.getName() + " " + typeName;
+    }
+    return typeName;
+  }
+
+  /** Implements {@link Named} as specified by {@link Annotation}, so that it's equal to instances read by reflection. */
+  private static final class NamedImpl implements Named {
+    private final String value;
+
+    NamedImpl(String value) {
+      this.value = Objects.requireNonNull(value);
+    }
+
+    @Override
+    public String value() {
+      return value;
+    }
+
+    @Override
+    public Class<? extends Annotation> annotationType() {
+      return Named.class;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Named && value.equals(((Named) obj).value());
+    }
+
+    @Override
+    public int hashCode() {
+      return (127 * "value".hashCode()) ^ value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "@" + Named.class.getName() + "(value=" + value + ")";
+    }
+  }
+}
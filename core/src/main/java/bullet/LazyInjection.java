@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import dagger.MembersInjector;
+
+/**
+ * Injects the members of instances as they're being iterated over, e.g. records read from a file or database, so that
+ * they don't need to be all held in memory as with {@link ObjectGraph#injectAll(java.util.Collection)}.
+ *
+ * <p>Each iterator looks up the members injector once per distinct runtime type of the instances it iterates over.
+ */
+public final class LazyInjection {
+
+  private LazyInjection() {
+  }
+
+  /**
+   * Returns an iterable whose iterators inject the members of the instances of iterable through graph as they return
+   * them.
+   */
+  public static <T> Iterable<T> injecting(final ObjectGraph graph, final Iterable<T> iterable) {
+    return new Iterable<T>() {
+      @Override
+      public Iterator<T> iterator() {
+        return injecting(graph, iterable.iterator());
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator injecting the members of the instances returned by iterator through graph as it returns them.
+   *
+   * <p>The returned iterator's {@link Iterator#next() next()} method throws an {@link IllegalArgumentException} if the
+   * runtime type of the instance is not one of graph's injectable types.
+   */
+  public static <T> Iterator<T> injecting(ObjectGraph graph, Iterator<T> iterator) {
+    return new InjectingIterator<>(graph, iterator);
+  }
+
+  private static final class InjectingIterator<T> implements Iterator<T> {
+    private final ObjectGraph graph;
+    private final Iterator<T> delegate;
+    private final Map<Class<?>, MembersInjector<Object>> injectors = new HashMap<>();
+    private Class<?> lastType;
+    private MembersInjector<Object> lastInjector;
+
+    InjectingIterator(ObjectGraph graph, Iterator<T> delegate) {
+      this.graph = graph;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return delegate.hasNext();
+    }
+
+    @Override
+    public T next() {
+      T instance = delegate.next();
+      injector(instance.getClass()).injectMembers(instance);
+      return instance;
+    }
+
+    @Override
+    public void remove() {
+      delegate.remove();
+    }
+
+    @SuppressWarnings("unchecked")
+    private MembersInjector<Object> injector(Class<?> type) {
+      // Iterated instances are often all of the same type, so avoid the lookup in that case.
+      if (type != lastType) {
+        MembersInjector<Object> injector = injectors.get(type);
+        if (injector == null) {
+          injector = (MembersInjector<Object>) graph.membersInjector(type);
+          injectors.put(type, injector);
+        }
+        lastType = type;
+        lastInjector = injector;
+      }
+      return lastInjector;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An object graph that defers building the object graph it forwards to until first used, e.g. to keep building a large
+ * component off the startup path:
+ * <pre><code>
+ * LazyObjectGraph graph = LazyObjectGraph.of(new LazyObjectGraph.Factory() {
+ *   public ObjectGraph create() {
+ *     return new BulletMyComponent(DaggerMyComponent.create());
+ *   }
+ * });
+ * graph.prebuild(executor); // optional
+ * </code></pre>
+ *
+ * <p>The object graph is built only once, even when first used by several threads at once, the other threads waiting
+ * for it; if the build fails, they all get the exception and the next use builds it again. Once built, using the
+ * object graph costs one volatile read and doesn't lock.
+ */
+public final class LazyObjectGraph extends ForwardingObjectGraph {
+
+  /** Builds the object graph, generally by building a component and wrapping it into its generated object graph. */
+  public interface Factory {
+    ObjectGraph create();
+  }
+
+  /** Returns an object graph built by factory on first use. */
+  public static LazyObjectGraph of(Factory factory) {
+    if (factory == null) {
+      throw new NullPointerException("factory");
+    }
+    return new LazyObjectGraph(factory);
+  }
+
+  private final Factory factory;
+  private final AtomicReference<FutureTask<ObjectGraph>> build = new AtomicReference<>();
+  private volatile ObjectGraph delegate;
+
+  private LazyObjectGraph(Factory factory) {
+    this.factory = factory;
+    this.build.set(newBuild());
+  }
+
+  private FutureTask<ObjectGraph> newBuild() {
+    return new FutureTask<>(new Callable<ObjectGraph>() {
+      @Override
+      public ObjectGraph call() {
+        ObjectGraph graph = factory.create();
+        if (graph == null) {
+          throw new NullPointerException("Factory returned null");
+        }
+        return graph;
+      }
+    });
+  }
+
+  /** Returns whether the object graph has been built. */
+  public boolean isBuilt() {
+    return delegate != null;
+  }
+
+  /**
+   * Builds the object graph in the background through executor, unless it's already built or being built. Failures
+   * are not reported, the object graph being built again on next use.
+   */
+  public void prebuild(Executor executor) {
+    if (delegate != null) {
+      return;
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          delegate();
+        } catch (RuntimeException e) {
+          // Will be rethrown on next use
+        }
+      }
+    });
+  }
+
+  @Override
+  protected ObjectGraph delegate() {
+    ObjectGraph graph = delegate;
+    return graph != null ? graph : build();
+  }
+
+  /** Builds the object graph, or waits for it to be built by another thread, and rethrows the build failure. */
+  private ObjectGraph build() {
+    FutureTask<ObjectGraph> task = build.get();
+    // Only the first call runs the task, others return immediately.
+    task.run();
+    ObjectGraph graph;
+    try {
+      graph = Tasks.getUninterruptibly(task);
+    } catch (RuntimeException | Error e) {
+      // Let the next use build it again
+      build.compareAndSet(task, newBuild());
+      throw e;
+    }
+    delegate = graph;
+    return graph;
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+/**
+ * Memoizes the instances of the intercepted keys, so that expensive unscoped bindings are only provided again once
+ * their memoized instance has been evicted.
+ *
+ * <p>At most {@link #maximumSize(int) maximumSize} instances are memoized; beyond that, the least recently used ones
+ * are evicted. Instances can also be {@link #expireAfterWrite(long, TimeUnit) evicted after some time}, or
+ * {@link #softValues() softly referenced} so that the garbage collector evicts them when memory runs low.
+ *
+ * <p>A memoization can be shared by any number of object graphs: each intercepted provider memoizes its own instance,
+ * so graphs never see each other's instances, but they share the maximum size. It is thread-safe and doesn't lock;
+ * concurrent misses for a same provider can thus provide several instances, only one of them being memoized. Null
+ * instances are not memoized.
+ *
+ * @see InterceptingObjectGraph
+ */
+public final class Memoization implements ProviderInterceptor {
+
+  /** Returns a memoization keeping at most maximumSize instances. */
+  public static Memoization maximumSize(int maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+    }
+    return new Memoization(maximumSize, 0, false);
+  }
+
+  private final int maximumSize;
+  private final long expireAfterNanos;
+  private final boolean softValues;
+  private final ConcurrentMap<MemoizingProvider<?>, Entry> entries = new ConcurrentHashMap<>();
+
+  private Memoization(int maximumSize, long expireAfterNanos, boolean softValues) {
+    this.maximumSize = maximumSize;
+    this.expireAfterNanos = expireAfterNanos;
+    this.softValues = softValues;
+  }
+
+  /**
+   * Returns a new memoization like this one, but also evicting instances once the given duration has elapsed since
+   * they've been memoized.
+   */
+  public Memoization expireAfterWrite(long duration, TimeUnit unit) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("duration must be positive: " + duration);
+    }
+    return new Memoization(maximumSize, unit.toNanos(duration), softValues);
+  }
+
+  /**
+   * Returns a new memoization like this one, but only softly referencing instances, so that they're evicted when the
+   * garbage collector needs memory.
+   */
+  public Memoization softValues() {
+    return new Memoization(maximumSize, expireAfterNanos, true);
+  }
+
+  @Override
+  public <T> Provider<T> intercept(Key<T> key, Provider<T> provider) {
+    return new MemoizingProvider<>(provider);
+  }
+
+  /** Returns the number of memoized instances, including those that have expired but haven't been evicted yet. */
+  public int size() {
+    return entries.size();
+  }
+
+  /** Evicts all memoized instances. */
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T get(MemoizingProvider<T> key) {
+    long now = System.nanoTime();
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      Object value = entry.value();
+      if (value != null && (expireAfterNanos == 0 || now - entry.writtenAt < expireAfterNanos)) {
+        entry.accessedAt = now;
+        return (T) value;
+      }
+      entries.remove(key, entry);
+    }
+    T value = key.provider.get();
+    if (value != null) {
+      entries.put(key, new Entry(value, softValues, now));
+      if (entries.size() > maximumSize) {
+        evictLeastRecentlyUsed();
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Evicts entries until the memoization is back to its maximum size. The maximum size is expected to be in the order
+   * of the number of intercepted keys, so scanning the entries is cheaper than maintaining an access order.
+   */
+  private void evictLeastRecentlyUsed() {
+    while (entries.size() > maximumSize) {
+      Map.Entry<MemoizingProvider<?>, Entry> eldest = null;
+      for (Map.Entry<MemoizingProvider<?>, Entry> candidate : entries.entrySet()) {
+        if (eldest == null || candidate.getValue().accessedAt - eldest.getValue().accessedAt < 0) {
+          eldest = candidate;
+        }
+      }
+      if (eldest == null) {
+        return;
+      }
+      entries.remove(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  /** Memoizes a single instance; entries are keyed by the provider's identity, not by its key. */
+  private final class MemoizingProvider<T> implements Provider<T> {
+    final Provider<T> provider;
+
+    MemoizingProvider(Provider<T> provider) {
+      this.provider = provider;
+    }
+
+    @Override
+    public T get() {
+      return Memoization.this.get(this);
+    }
+  }
+
+  private static final class Entry {
+    private final Object value;
+    private final boolean soft;
+    final long writtenAt;
+    volatile long accessedAt;
+
+    Entry(Object value, boolean soft, long now) {
+      this.value = soft ? new SoftReference<>(value) : value;
+      this.soft = soft;
+      this.writtenAt = now;
+      this.accessedAt = now;
+    }
+
+    Object value() {
+      return soft ? ((SoftReference<?>) value).get() : value;
+    }
+  }
+}
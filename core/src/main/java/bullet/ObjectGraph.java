@@ -15,6 +15,13 @@
  */
 package bullet;
 
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+import javax.inject.Provider;
+
+import dagger.MembersInjector;
+
 public interface ObjectGraph {
   /**
    * Returns an instance of type.
@@ -29,4 +36,133 @@ public interface ObjectGraph {
    * @throws java.lang.IllegalArgumentException if the runtime type of instance is not one of this object graph's injectable types.
    */
   <T> T inject(T instance);
+
+  /**
+   * Returns a provider of instances of type, whose {@link Provider#get() get()} method is equivalent to calling
+   * {@link #get(Class) get(type)} but doesn't look type up again.
+   *
+   * @throws java.lang.IllegalArgumentException if type is not one of this object graph's injectable types.
+   */
+  <T> Provider<T> provider(Class<T> type);
+
+  /**
+   * Returns a members injector for instances of type, whose {@link MembersInjector#injectMembers(Object) injectMembers(instance)}
+   * method injects the members of instance as declared by type (and its supertypes), without looking type up again.
+   *
+   * @throws java.lang.IllegalArgumentException if type is not one of this object graph's injectable types.
+   */
+  <T> MembersInjector<T> membersInjector(Class<T> type);
+
+  /**
+   * Returns an instance of type, or {@code null} if type is not one of this object graph's injectable types.
+   *
+   * <p>Unlike {@link #get(Class)}, this method doesn't throw (and pays for no stack trace) when type cannot be provided.
+   * Use {@link #canProvide(Class)} to tell such a miss apart from a binding that provided {@code null}.
+   */
+  <T> T tryGet(Class<T> type);
+
+  /**
+   * Returns whether {@link #get(Class) get(type)} would return an instance rather than throw.
+   */
+  boolean canProvide(Class<?> type);
+
+  /**
+   * Returns whether {@link #inject(Object) inject(instance)} would inject the members of an instance whose runtime
+   * type is type, rather than throw.
+   */
+  boolean canInject(Class<?> type);
+
+  /**
+   * Injects the members of all instances, looking up the members injector only once per distinct runtime type rather
+   * than once per instance as {@link #inject(Object)} would.
+   *
+   * @throws java.lang.IllegalArgumentException if the runtime type of any of the instances is not one of this object
+   *     graph's injectable types; no instance is injected then.
+   */
+  void injectAll(Collection<?> instances);
+
+  /**
+   * Same as {@link #injectAll(Collection)} but splits large batches into chunks injected in parallel by executor (e.g.
+   * a {@link java.util.concurrent.ForkJoinPool}), and returns once all instances have been injected.
+   *
+   * @throws java.lang.IllegalArgumentException if the runtime type of any of the instances is not one of this object
+   *     graph's injectable types; no instance is injected then.
+   */
+  void injectAll(Collection<?> instances, Executor executor);
+
+  /**
+   * Returns an instance for key, which might be qualified.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not one of this object graph's injectable keys.
+   */
+  <T> T get(Key<T> key);
+
+  /**
+   * Returns a provider of instances for key, whose {@link Provider#get() get()} method is equivalent to calling
+   * {@link #get(Key) get(key)} but doesn't look key up again.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not one of this object graph's injectable keys.
+   */
+  <T> Provider<T> provider(Key<T> key);
+
+  /**
+   * Returns an instance for key, or {@code null} if key is not one of this object graph's injectable keys.
+   *
+   * @see #tryGet(Class)
+   */
+  <T> T tryGet(Key<T> key);
+
+  /**
+   * Returns whether {@link #get(Key) get(key)} would return an instance rather than throw.
+   */
+  boolean canProvide(Key<?> key);
+
+  /**
+   * Returns an instance for key, one of the constants generated in the {@code Keys} nested class of this object graph's
+   * class. This doesn't involve any lookup.
+   *
+   * @throws java.lang.IllegalArgumentException if key has been generated for another object graph class.
+   */
+  <T> T get(BindingKey<T> key);
+
+  /**
+   * Returns whether {@link #get(BindingKey) get(key)} would return an instance rather than throw, i.e. whether key has
+   * been generated for this object graph's class.
+   */
+  boolean canProvide(BindingKey<?> key);
+
+  /**
+   * Returns the {@code int} for key, e.g. {@code Key.named(Integer.class, "maxConnections")}, which is neither boxed
+   * nor unboxed when the component method returns an {@code int}.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not one of this object graph's injectable keys.
+   */
+  int getInt(Key<Integer> key);
+
+  /**
+   * Returns the {@code long} for key, which is neither boxed nor unboxed when the component method returns a
+   * {@code long}.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not one of this object graph's injectable keys.
+   * @see #getInt(Key)
+   */
+  long getLong(Key<Long> key);
+
+  /**
+   * Returns the {@code double} for key, which is neither boxed nor unboxed when the component method returns a
+   * {@code double}.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not one of this object graph's injectable keys.
+   * @see #getInt(Key)
+   */
+  double getDouble(Key<Double> key);
+
+  /**
+   * Returns the {@code boolean} for key, which is neither boxed nor unboxed when the component method returns a
+   * {@code boolean}.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not one of this object graph's injectable keys.
+   * @see #getInt(Key)
+   */
+  boolean getBoolean(Key<Boolean> key);
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caches object graphs by key, e.g. one per tenant, building them on demand and evicting the least recently used ones
+ * beyond a maximum size:
+ * <pre><code>
+ * ObjectGraphCache&lt;String&gt; graphs = ObjectGraphCache.create(1000, new ObjectGraphCache.Loader&lt;String&gt;() {
+ *   public ObjectGraph load(String tenant) {
+ *     return new BulletTenantComponent(DaggerTenantComponent.builder().tenant(tenant).build());
+ *   }
+ * });
+ * ObjectGraph graph = graphs.get(tenant);
+ * </code></pre>
+ *
+ * <p>Concurrent first requests for a same key build its object graph only once, the other threads waiting for it; if
+ * the build fails, they all get the exception and the next request builds it again. Getting an already built object
+ * graph doesn't lock.
+ *
+ * <p>Object graphs are evicted when building a new one puts the cache over its maximum size; neither object graphs
+ * being built nor the new one are evicted. Finding the least recently used object graph takes a scan of the cache, which is negligible
+ * compared to building the new object graph. Evicted and {@link #invalidate(Object) invalidated} object graphs are
+ * passed to the {@link RemovalListener}, if any, so that they can be closed.
+ */
+public final class ObjectGraphCache<K> {
+
+  /** Builds the object graph for a key. */
+  public interface Loader<K> {
+    ObjectGraph load(K key);
+  }
+
+  /** Called once for each object graph removed from the cache. */
+  public interface RemovalListener<K> {
+    void onRemoval(K key, ObjectGraph graph);
+  }
+
+  /** Returns a cache of at most maximumSize object graphs, built by loader. */
+  public static <K> ObjectGraphCache<K> create(int maximumSize, Loader<? super K> loader) {
+    return create(maximumSize, loader, null);
+  }
+
+  /**
+   * Returns a cache of at most maximumSize object graphs, built by loader, and passed to removalListener once removed
+   * from the cache.
+   */
+  public static <K> ObjectGraphCache<K> create(int maximumSize, Loader<? super K> loader,
+      RemovalListener<? super K> removalListener) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+    }
+    if (loader == null) {
+      throw new NullPointerException("loader");
+    }
+    return new ObjectGraphCache<>(maximumSize, loader, removalListener);
+  }
+
+  private final int maximumSize;
+  private final Loader<? super K> loader;
+  private final RemovalListener<? super K> removalListener;
+  private final ConcurrentMap<K, Entry> entries = new ConcurrentHashMap<>();
+
+  private ObjectGraphCache(int maximumSize, Loader<? super K> loader, RemovalListener<? super K> removalListener) {
+    this.maximumSize = maximumSize;
+    this.loader = loader;
+    this.removalListener = removalListener;
+  }
+
+  /**
+   * Returns the object graph for key, building it if it's not in the cache yet.
+   *
+   * @throws java.lang.RuntimeException or {@link Error} thrown by the loader.
+   */
+  public ObjectGraph get(final K key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      Entry newEntry = new Entry(new Callable<ObjectGraph>() {
+        @Override
+        public ObjectGraph call() {
+          ObjectGraph graph = loader.load(key);
+          if (graph == null) {
+            throw new NullPointerException("Loader returned null for " + key);
+          }
+          return graph;
+        }
+      });
+      entry = entries.putIfAbsent(key, newEntry);
+      if (entry == null) {
+        entry = newEntry;
+        build(key, entry);
+      }
+    }
+    entry.accessedAt = System.nanoTime();
+    return entry.await();
+  }
+
+  /** Returns the object graph for key if it's in the cache and built, or null otherwise. */
+  public ObjectGraph getIfPresent(K key) {
+    Entry entry = entries.get(key);
+    if (entry == null || entry.graph == null) {
+      return null;
+    }
+    entry.accessedAt = System.nanoTime();
+    return entry.graph;
+  }
+
+  /** Removes the object graph for key from the cache. */
+  public void invalidate(K key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) {
+      notifyRemoval(key, entry);
+    }
+  }
+
+  /** Removes all object graphs from the cache. */
+  public void invalidateAll() {
+    for (K key : entries.keySet()) {
+      invalidate(key);
+    }
+  }
+
+  /** Returns the number of object graphs in the cache, including those being built. */
+  public int size() {
+    return entries.size();
+  }
+
+  private void build(K key, Entry entry) {
+    entry.task.run();
+    try {
+      entry.graph = entry.task.get();
+    } catch (InterruptedException | ExecutionException e) {
+      // The task has run, so it cannot be interrupted; a failed build is removed so that it can be retried.
+      entries.remove(key, entry);
+      return;
+    }
+    // The object graph is about to be returned, so it's just been used, however long it took to build.
+    entry.accessedAt = System.nanoTime();
+    // The entry might have been invalidated while being built, in which case it's been left for us to notify.
+    if (entries.get(key) != entry) {
+      notifyRemoval(key, entry);
+    }
+    if (entries.size() > maximumSize) {
+      evictLeastRecentlyUsed(entry);
+    }
+  }
+
+  /** Evicts object graphs until the cache is back to its maximum size, never evicting the one being returned. */
+  private void evictLeastRecentlyUsed(Entry returned) {
+    while (entries.size() > maximumSize) {
+      Map.Entry<K, Entry> eldest = null;
+      for (Map.Entry<K, Entry> candidate : entries.entrySet()) {
+        if (candidate.getValue().graph != null && candidate.getValue() != returned
+            && (eldest == null || candidate.getValue().accessedAt - eldest.getValue().accessedAt < 0)) {
+          eldest = candidate;
+        }
+      }
+      if (eldest == null) {
+        // Only object graphs being built, or returned, are left
+        return;
+      }
+      if (entries.remove(eldest.getKey(), eldest.getValue())) {
+        notifyRemoval(eldest.getKey(), eldest.getValue());
+      }
+    }
+  }
+
+  private void notifyRemoval(K key, Entry entry) {
+    // Object graphs being built are notified by the building thread once built.
+    if (entry.graph != null && removalListener != null && entry.notified.compareAndSet(false, true)) {
+      removalListener.onRemoval(key, entry.graph);
+    }
+  }
+
+  private static final class Entry {
+    final FutureTask<ObjectGraph> task;
+    volatile ObjectGraph graph;
+    volatile long accessedAt = System.nanoTime();
+    final AtomicBoolean notified = new AtomicBoolean();
+
+    Entry(Callable<ObjectGraph> loader) {
+      this.task = new FutureTask<>(loader);
+    }
+
+    /** Returns the built object graph, or rethrows the build failure. */
+    ObjectGraph await() {
+      ObjectGraph graph = this.graph;
+      return graph != null ? graph : Tasks.getUninterruptibly(task);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Provider;
+
+/**
+ * Pools the instances of the intercepted keys, for bindings created and thrown away at high rates such as large
+ * buffers: instances are taken from the pool when it's not empty, and given back to it with {@link #release(Object)}.
+ *
+ * <p>Each key has its own pool of at most {@link #maximumSize(int) maximumSize} instances; released instances that
+ * don't fit are left to the garbage collector. Pools are lock-free queues, so getting and releasing instances doesn't
+ * lock. Instances are pooled as-is, so they should be reset before being released, and released at most once.
+ * Null instances are not pooled.
+ *
+ * <p>Unlike a {@link Memoization}, a pooling cannot be shared by object graphs intercepting the same keys: instances
+ * are released by key (or runtime type), which must thus identify a single pool, and pooled instances of one object
+ * graph must not be handed out by another. Intercepting an already pooled key throws; use a pooling per object graph.
+ *
+ * @see InterceptingObjectGraph
+ */
+public final class Pooling implements ProviderInterceptor {
+
+  /** Returns a pooling keeping at most maximumSize idle instances per key. */
+  public static Pooling maximumSize(int maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+    }
+    return new Pooling(maximumSize);
+  }
+
+  /** Marks runtime types whose instances can come from several pools. */
+  private static final Pool<Object> AMBIGUOUS = new Pool<>(null, 0);
+
+  private final int maximumSize;
+  private final ConcurrentMap<Key<?>, Pool<?>> poolsByKey = new ConcurrentHashMap<>();
+  // Filled as instances are provided, so that they can be released without their key.
+  private final ConcurrentMap<Class<?>, Pool<?>> poolsByType = new ConcurrentHashMap<>();
+
+  private Pooling(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  @Override
+  public <T> Provider<T> intercept(Key<T> key, Provider<T> provider) {
+    final Pool<T> pool = new Pool<>(provider, maximumSize);
+    if (poolsByKey.putIfAbsent(key, pool) != null) {
+      throw new IllegalArgumentException("Key already pooled: " + key);
+    }
+    return new Provider<T>() {
+      @Override
+      public T get() {
+        T instance = pool.take();
+        if (instance != null && poolsByType.get(instance.getClass()) != pool) {
+          register(instance.getClass(), pool);
+        }
+        return instance;
+      }
+    };
+  }
+
+  private void register(Class<?> type, Pool<?> pool) {
+    Pool<?> existing = poolsByType.putIfAbsent(type, pool);
+    if (existing != null && existing != pool) {
+      poolsByType.put(type, AMBIGUOUS);
+    }
+  }
+
+  /**
+   * Gives instance back to the pool of the key it's been provided for.
+   *
+   * @throws java.lang.IllegalArgumentException if instances of the runtime type of instance have not been provided
+   *     through this pooling, or have been provided for several keys; use {@link #release(Key, Object)} in that case.
+   */
+  @SuppressWarnings("unchecked")
+  public void release(Object instance) {
+    Pool<Object> pool = (Pool<Object>) poolsByType.get(instance.getClass());
+    if (pool == null) {
+      throw new IllegalArgumentException("No pool for " + instance.getClass().getCanonicalName());
+    }
+    if (pool == AMBIGUOUS) {
+      throw new IllegalArgumentException("Several pools for " + instance.getClass().getCanonicalName());
+    }
+    pool.release(instance);
+  }
+
+  /**
+   * Gives instance back to the pool of key.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not pooled by this pooling.
+   */
+  public <T> void release(Key<T> key, T instance) {
+    pool(key).release(instance);
+  }
+
+  /** Returns the number of idle instances in all pools. */
+  public int size() {
+    int size = 0;
+    for (Pool<?> pool : poolsByKey.values()) {
+      size += pool.size.get();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of idle instances in the pool of key.
+   *
+   * @throws java.lang.IllegalArgumentException if key is not pooled by this pooling.
+   */
+  public int size(Key<?> key) {
+    return pool(key).size.get();
+  }
+
+  /** Returns the number of instances that have been taken from the pools. */
+  public long hitCount() {
+    long hits = 0;
+    for (Pool<?> pool : poolsByKey.values()) {
+      hits += pool.hits.get();
+    }
+    return hits;
+  }
+
+  /** Returns the number of instances that have been provided because their pool was empty. */
+  public long missCount() {
+    long misses = 0;
+    for (Pool<?> pool : poolsByKey.values()) {
+      misses += pool.misses.get();
+    }
+    return misses;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Pool<T> pool(Key<T> key) {
+    Pool<T> pool = (Pool<T>) poolsByKey.get(key);
+    if (pool == null) {
+      throw new IllegalArgumentException("No pool for " + key);
+    }
+    return pool;
+  }
+
+  private static final class Pool<T> {
+    private final Provider<T> provider;
+    private final int maximumSize;
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue#size() is linear, so the size is tracked separately.
+    final AtomicInteger size = new AtomicInteger();
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    Pool(Provider<T> provider, int maximumSize) {
+      this.provider = provider;
+      this.maximumSize = maximumSize;
+    }
+
+    T take() {
+      T instance = idle.poll();
+      if (instance != null) {
+        size.decrementAndGet();
+        hits.incrementAndGet();
+        return instance;
+      }
+      misses.incrementAndGet();
+      return provider.get();
+    }
+
+    void release(T instance) {
+      if (instance == null) {
+        return;
+      }
+      // Reserve a slot before adding the instance so that the pool never grows past its maximum size.
+      int current;
+      do {
+        current = size.get();
+        if (current >= maximumSize) {
+          return;
+        }
+      } while (!size.compareAndSet(current, current + 1));
+      idle.offer(instance);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import javax.inject.Provider;
+
+/**
+ * Changes how instances are provided for some keys of an object graph, e.g. caching them.
+ *
+ * @see InterceptingObjectGraph
+ */
+public interface ProviderInterceptor {
+  /**
+   * Returns a provider for key that replaces provider, generally by calling it in some way. This is called once per
+   * intercepted key, when the intercepting object graph is created.
+   */
+  <T> Provider<T> intercept(Key<T> key, Provider<T> provider);
+}
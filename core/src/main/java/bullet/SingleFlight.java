@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+/**
+ * Coalesces concurrent provisions of the intercepted keys, so that a burst of threads getting an expensive unscoped
+ * binding at once doesn't build as many instances in parallel.
+ *
+ * <p>At most {@link #maximumConcurrency(int) maximumConcurrency} provisions of each key run in parallel (one by
+ * default); threads getting the key while that many are in flight share the instance of the latest one rather than
+ * building their own. Each key has its own permits, so there's no lock shared between keys, and a thread getting a
+ * key while no provision is in flight doesn't wait for anything.
+ *
+ * <p>If a provision throws, all the threads sharing it get the exception.
+ *
+ * @see InterceptingObjectGraph
+ */
+public final class SingleFlight implements ProviderInterceptor {
+
+  /** Returns a single flight running at most one provision of each key at a time. */
+  public static SingleFlight create() {
+    return new SingleFlight(1);
+  }
+
+  /** Returns a single flight running at most maximumConcurrency provisions of each key in parallel. */
+  public static SingleFlight maximumConcurrency(int maximumConcurrency) {
+    if (maximumConcurrency <= 0) {
+      throw new IllegalArgumentException("maximumConcurrency must be positive: " + maximumConcurrency);
+    }
+    return new SingleFlight(maximumConcurrency);
+  }
+
+  private final int maximumConcurrency;
+
+  private SingleFlight(int maximumConcurrency) {
+    this.maximumConcurrency = maximumConcurrency;
+  }
+
+  @Override
+  public <T> Provider<T> intercept(Key<T> key, Provider<T> provider) {
+    return new CoalescingProvider<>(provider, maximumConcurrency);
+  }
+
+  private static final class CoalescingProvider<T> implements Provider<T> {
+    private final Provider<T> provider;
+    private final Semaphore permits;
+    private final AtomicReference<FutureTask<T>> latest = new AtomicReference<>();
+
+    CoalescingProvider(Provider<T> provider, int maximumConcurrency) {
+      this.provider = provider;
+      this.permits = new Semaphore(maximumConcurrency);
+    }
+
+    @Override
+    public T get() {
+      if (!permits.tryAcquire()) {
+        FutureTask<T> flight = latest.get();
+        if (flight != null) {
+          return Tasks.getUninterruptibly(flight);
+        }
+        // The flights are about to start or end, wait for one to end rather than spinning.
+        permits.acquireUninterruptibly();
+      }
+      FutureTask<T> flight = new FutureTask<>(new Callable<T>() {
+        @Override
+        public T call() {
+          return provider.get();
+        }
+      });
+      try {
+        latest.set(flight);
+        flight.run();
+      } finally {
+        latest.compareAndSet(flight, null);
+        permits.release();
+      }
+      return Tasks.getUninterruptibly(flight);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.inject.Provider;
+
+/**
+ * Provides one instance of each intercepted key per thread, e.g. for bindings that are costly to build and not
+ * thread-safe but fine to reuse within a thread, such as formatters or digesters.
+ *
+ * <p>The instances of each thread are held in a map of its own, so getting an instance doesn't lock nor contend with
+ * other threads. Instances are released along with their thread, or earlier with {@link #clear()}; the map only weakly
+ * references the intercepted providers, so a scope can be shared by many short-lived object graphs, e.g. one per
+ * request, without holding the instances of those that have been garbage collected. Short-lived threads, such as a
+ * thread per task or virtual threads, each provide their own instances and gain nothing from this scope; it is meant
+ * for pooled threads. Null instances are not scoped.
+ *
+ * @see InterceptingObjectGraph
+ */
+public final class ThreadLocalScope implements ProviderInterceptor {
+  private final ThreadLocal<Map<Provider<?>, Object>> instances = new ThreadLocal<Map<Provider<?>, Object>>() {
+    @Override
+    protected Map<Provider<?>, Object> initialValue() {
+      return new WeakHashMap<>();
+    }
+  };
+
+  @Override
+  public <T> Provider<T> intercept(Key<T> key, final Provider<T> provider) {
+    return new Provider<T>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public T get() {
+        Map<Provider<?>, Object> threadInstances = instances.get();
+        T instance = (T) threadInstances.get(this);
+        if (instance == null) {
+          instance = provider.get();
+          if (instance != null) {
+            threadInstances.put(this, instance);
+          }
+        }
+        return instance;
+      }
+    };
+  }
+
+  /**
+   * Releases the instances of the current thread, e.g. at the end of a task run by a thread pool, so that they can be
+   * garbage collected. The thread will get new instances next time.
+   */
+  public void clear() {
+    instances.remove();
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2014 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bullet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Implements the {@code warmUp(Executor)} method of generated object graphs. Called by generated code.
+ */
+public final class WarmUp {
+
+  private WarmUp() {
+  }
+
+  /**
+   * Gets an instance for each binding key through graph, layer by layer: the bindings of a layer are gotten in parallel
+   * through executor, and only once all of them have been gotten are those of the next layer.
+   */
+  public static void run(final ObjectGraph graph, Executor executor, BindingKey<?>[]... layers) {
+    for (BindingKey<?>[] layer : layers) {
+      if (layer.length == 1) {
+        // Not worth the hand-off to another thread
+        graph.get(layer[0]);
+        continue;
+      }
+      List<Runnable> tasks = new ArrayList<>(layer.length);
+      for (final BindingKey<?> key : layer) {
+        tasks.add(new Runnable() {
+          @Override
+          public void run() {
+            graph.get(key);
+          }
+        });
+      }
+      Tasks.runAll(executor, tasks);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
+
+import bullet.CompositeObjectGraph;
+import bullet.Key;
+import bullet.LazyObjectGraph;
+import bullet.ObjectGraph;
+import dagger.Component;
+import dagger.Module;
+import dagger.Provides;
+
+public class CompositeObjectGraphTest {
+
+  static class A {
+    @Inject A() {}
+  }
+  static class B {
+    @Inject B() {}
+  }
+  static class Shared {
+    @Inject Shared() {}
+  }
+  static class NotInComponents {
+    @Inject NotInComponents() {}
+  }
+  static class Injected {
+    @Inject A a;
+  }
+
+  @Module
+  static class NamesModule {
+    @Provides @Named("users") String users() { return "users"; }
+    @Provides @Named("maxUsers") int maxUsers() { return 10; }
+  }
+
+  // XXX: interfaces must be public for Mockito ForwardsInvocations to work
+  @Component(modules = NamesModule.class)
+  public interface UsersComponent {
+    A a();
+    Shared shared();
+    @Named("users") String users();
+    @Named("maxUsers") int maxUsers();
+    void inject(Injected injected);
+  }
+
+  @Component
+  public interface OrdersComponent {
+    B b();
+    Shared shared();
+  }
+
+  UsersComponent usersComponent;
+  OrdersComponent ordersComponent;
+  ObjectGraph graph;
+
+  @Before public void setUp() {
+    // We cannot spy the Dagger‡ components as they're final, so we wrap them in mocks that delegate to them.
+    // We want to test both that the methods are called (mockito) and that everything actually works (dagger).
+    usersComponent = mock(UsersComponent.class,
+        new ForwardsInvocations(DaggerCompositeObjectGraphTest_UsersComponent.create()));
+    ordersComponent = mock(OrdersComponent.class,
+        new ForwardsInvocations(DaggerCompositeObjectGraphTest_OrdersComponent.create()));
+    graph = CompositeObjectGraph.of(
+        new BulletCompositeObjectGraphTest_UsersComponent(usersComponent),
+        new BulletCompositeObjectGraphTest_OrdersComponent(ordersComponent));
+  }
+
+  @Test public void testRouting() {
+    assertThat(graph.get(A.class)).isNotNull();
+    verify(usersComponent).a();
+    assertThat(graph.get(B.class)).isNotNull();
+    verify(ordersComponent).b();
+    assertThat(graph.provider(A.class).get()).isNotNull();
+    verify(usersComponent, times(2)).a();
+    verifyNoMoreInteractions(usersComponent, ordersComponent);
+  }
+
+  @Test public void testKeys() {
+    assertThat(graph.get(Key.named(String.class, "users"))).isEqualTo("users");
+    verify(usersComponent).users();
+    assertThat(graph.getInt(Key.named(Integer.class, "maxUsers"))).isEqualTo(10);
+    verify(usersComponent).maxUsers();
+    assertThat(graph.get(BulletCompositeObjectGraphTest_OrdersComponent.Keys.B)).isNotNull();
+    verify(ordersComponent).b();
+    verifyNoMoreInteractions(usersComponent, ordersComponent);
+  }
+
+  @Test public void testMembersInjection() {
+    Injected injected = graph.inject(new Injected());
+    verify(usersComponent).inject(injected);
+    assertThat(injected.a).isNotNull();
+    assertThat(graph.canInject(Injected.class)).isTrue();
+    verifyNoMoreInteractions(usersComponent, ordersComponent);
+  }
+
+  @Test public void testProbes() {
+    assertThat(graph.canProvide(A.class)).isTrue();
+    assertThat(graph.canProvide(B.class)).isTrue();
+    assertThat(graph.canProvide(NotInComponents.class)).isFalse();
+    assertThat(graph.tryGet(NotInComponents.class)).isNull();
+    assertThat(graph.canProvide(Key.named(String.class, "orders"))).isFalse();
+    assertThat(graph.canInject(A.class)).isFalse();
+    verifyZeroInteractions(usersComponent, ordersComponent);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnUnknownType() {
+    graph.get(NotInComponents.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnAmbiguousType() {
+    graph.get(Shared.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void probesThrowOnAmbiguousType() {
+    graph.canProvide(Shared.class);
+  }
+
+  @Test public void composesWrappersOfSameClass() {
+    ObjectGraph lazy = CompositeObjectGraph.of(
+        LazyObjectGraph.of(new LazyObjectGraph.Factory() {
+          @Override public ObjectGraph create() {
+            return new BulletCompositeObjectGraphTest_UsersComponent(usersComponent);
+          }
+        }),
+        LazyObjectGraph.of(new LazyObjectGraph.Factory() {
+          @Override public ObjectGraph create() {
+            return new BulletCompositeObjectGraphTest_OrdersComponent(ordersComponent);
+          }
+        }));
+    assertThat(lazy.get(A.class)).isNotNull();
+    verify(usersComponent).a();
+    assertThat(lazy.get(BulletCompositeObjectGraphTest_OrdersComponent.Keys.B)).isNotNull();
+    verify(ordersComponent).b();
+    assertThat(lazy.canProvide(BulletCompositeObjectGraphTest_UsersComponent.Keys.A)).isTrue();
+    verifyNoMoreInteractions(usersComponent, ordersComponent);
+  }
+
+  @Test public void graphsOfSameClassAreAmbiguous() {
+    ObjectGraph same = CompositeObjectGraph.of(
+        new BulletCompositeObjectGraphTest_OrdersComponent(ordersComponent),
+        new BulletCompositeObjectGraphTest_OrdersComponent(ordersComponent));
+    try {
+      same.get(BulletCompositeObjectGraphTest_OrdersComponent.Keys.B);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      same.canProvide(B.class);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    verifyZeroInteractions(ordersComponent);
+  }
+
+  @Test public void cachesAmbiguousRoutesButNotMisses() {
+    ObjectGraph users = mock(ObjectGraph.class,
+        new ForwardsInvocations(new BulletCompositeObjectGraphTest_UsersComponent(usersComponent)));
+    ObjectGraph orders = mock(ObjectGraph.class,
+        new ForwardsInvocations(new BulletCompositeObjectGraphTest_OrdersComponent(ordersComponent)));
+    ObjectGraph graph = CompositeObjectGraph.of(users, orders);
+    Key<String> unknown = Key.named(String.class, "orders");
+    for (int i = 0; i < 2; i++) {
+      try {
+        graph.get(Shared.class);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+      assertThat(graph.tryGet(unknown)).isNull();
+    }
+    verify(users).canProvide(Shared.class);
+    verify(orders).canProvide(Shared.class);
+    verify(users, times(2)).canProvide(unknown);
+    verify(orders, times(2)).canProvide(unknown);
+  }
+}
@@ -0,0 +1,76 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
+
+import bullet.ObjectGraph;
+import dagger.Component;
+import dagger.Lazy;
+import dagger.MembersInjector;
+
+public class HandlesTest {
+
+  static class A {
+    @Inject A() {}
+  }
+  static class B {
+    @Inject B() {}
+  }
+  static class C {
+    @Inject A a;
+  }
+
+  // XXX: interface must be public for Mockito ForwardsInvocations to work
+  @Component
+  public interface SimpleComponent {
+    Provider<A> a();
+    Lazy<B> b();
+    MembersInjector<C> c();
+  }
+
+  SimpleComponent component;
+  ObjectGraph graph;
+
+  @Before public void setUp() {
+    // We cannot spy the Dagger‡ component as it's final, so we wrap it in a mock that delegates to it.
+    // We want to test both that the method is called (mockito) and that everything actually works (dagger).
+    SimpleComponent realComponent = DaggerHandlesTest_SimpleComponent.create();
+    this.component = mock(SimpleComponent.class, new ForwardsInvocations(realComponent));
+    graph = new BulletHandlesTest_SimpleComponent(component);
+  }
+
+  @Test public void testProvider() {
+    A a1 = graph.get(A.class);
+    A a2 = graph.get(A.class);
+    verify(component).a();
+    assertThat(a1).isNotNull();
+    assertThat(a2).isNotSameAs(a1);
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testLazy() {
+    B b1 = graph.get(B.class);
+    B b2 = graph.get(B.class);
+    // Each Lazy memoizes its value, so it's not cached by the object graph
+    verify(component, times(2)).b();
+    assertThat(b1).isNotNull();
+    assertThat(b2).isNotSameAs(b1);
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testMembersInjector() {
+    C c1 = graph.inject(new C());
+    C c2 = graph.inject(new C());
+    verify(component).c();
+    assertThat(c1.a).isNotNull();
+    assertThat(c2.a).isNotNull();
+    verifyNoMoreInteractions(component);
+  }
+}
@@ -0,0 +1,290 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Qualifier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bullet.InterceptingObjectGraph;
+import bullet.Key;
+import bullet.Memoization;
+import bullet.ObjectGraph;
+import bullet.Pooling;
+import bullet.SingleFlight;
+import bullet.ThreadLocalScope;
+import dagger.Component;
+import dagger.Module;
+import dagger.Provides;
+
+public class InterceptingObjectGraphTest {
+
+  static class A {
+    @Inject A() {}
+  }
+  static class B {
+    @Inject B() {}
+  }
+  static class C {
+    @Inject C() {}
+  }
+
+  @Qualifier
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Marker {}
+
+  static class Slow {
+  }
+
+  @Module
+  static class NamesModule {
+    final AtomicInteger slowBuilds = new AtomicInteger();
+    final CountDownLatch slowStarted = new CountDownLatch(1);
+    final CountDownLatch slowRelease = new CountDownLatch(1);
+
+    @Provides @Named("a") A namedA() { return new A(); }
+    @Provides @Marker A markedA() { return new A(); }
+    @Provides Slow slow() {
+      slowBuilds.incrementAndGet();
+      slowStarted.countDown();
+      try {
+        slowRelease.await();
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      return new Slow();
+    }
+  }
+
+  @Component(modules = NamesModule.class)
+  interface SimpleComponent {
+    A a();
+    B b();
+    C c();
+    @Named("a") A namedA();
+    @Marker A markedA();
+    Slow slow();
+  }
+
+  NamesModule module;
+  ObjectGraph graph;
+
+  @Before public void setUp() {
+    module = new NamesModule();
+    graph = new BulletInterceptingObjectGraphTest_SimpleComponent(
+        DaggerInterceptingObjectGraphTest_SimpleComponent.builder().namesModule(module).build());
+  }
+
+  @Test public void memoizesInterceptedTypes() {
+    ObjectGraph memoizing = InterceptingObjectGraph.of(graph, Memoization.maximumSize(10), A.class);
+    A a = memoizing.get(A.class);
+    assertThat(memoizing.get(A.class)).isSameAs(a);
+    assertThat(memoizing.tryGet(A.class)).isSameAs(a);
+    assertThat(memoizing.provider(A.class).get()).isSameAs(a);
+    assertThat(memoizing.get(Key.get(A.class))).isSameAs(a);
+    // other types and keys aren't intercepted
+    assertThat(memoizing.get(B.class)).isNotSameAs(memoizing.get(B.class));
+    assertThat(memoizing.get(Key.named(A.class, "a"))).isNotSameAs(memoizing.get(Key.named(A.class, "a")));
+  }
+
+  @Test public void memoizesInterceptedKeys() {
+    ObjectGraph memoizing = InterceptingObjectGraph.of(graph, Memoization.maximumSize(10), Key.named(A.class, "a"));
+    Key<A> key = Key.named(A.class, "a");
+    assertThat(memoizing.get(key)).isSameAs(memoizing.get(key));
+    assertThat(memoizing.get(A.class)).isNotSameAs(memoizing.get(key));
+  }
+
+  @Test public void memoizesMarkerQualifiedKeys() {
+    Key<A> key = Key.get(A.class, Marker.class);
+    ObjectGraph memoizing = InterceptingObjectGraph.of(graph, Memoization.maximumSize(10), key);
+    assertThat(memoizing.get(key)).isSameAs(memoizing.get(key));
+    assertThat(memoizing.get(A.class)).isNotSameAs(memoizing.get(key));
+    assertThat(memoizing.get(A.class)).isNotSameAs(memoizing.get(A.class));
+  }
+
+  @Test public void doesNotShareInstancesAcrossGraphs() {
+    Memoization memoization = Memoization.maximumSize(10);
+    ObjectGraph first = InterceptingObjectGraph.of(graph, memoization, A.class);
+    ObjectGraph second = InterceptingObjectGraph.of(
+        new BulletInterceptingObjectGraphTest_SimpleComponent(DaggerInterceptingObjectGraphTest_SimpleComponent.create()),
+        memoization, A.class);
+    A a = first.get(A.class);
+    A other = second.get(A.class);
+    assertThat(other).isNotSameAs(a);
+    assertThat(first.get(A.class)).isSameAs(a);
+    assertThat(second.get(A.class)).isSameAs(other);
+    assertThat(memoization.size()).isEqualTo(2);
+  }
+
+  @Test public void evictsLeastRecentlyUsed() {
+    Memoization memoization = Memoization.maximumSize(2);
+    ObjectGraph memoizing = InterceptingObjectGraph.of(graph, memoization, A.class, B.class, C.class);
+    A a = memoizing.get(A.class);
+    B b = memoizing.get(B.class);
+    assertThat(memoizing.get(A.class)).isSameAs(a);
+    memoizing.get(C.class);
+    assertThat(memoization.size()).isEqualTo(2);
+    assertThat(memoizing.get(A.class)).isSameAs(a);
+    assertThat(memoizing.get(B.class)).isNotSameAs(b);
+  }
+
+  @Test public void expiresAfterWrite() throws Exception {
+    ObjectGraph memoizing = InterceptingObjectGraph.of(graph,
+        Memoization.maximumSize(10).expireAfterWrite(1, TimeUnit.MILLISECONDS), A.class);
+    A a = memoizing.get(A.class);
+    Thread.sleep(5);
+    assertThat(memoizing.get(A.class)).isNotSameAs(a);
+  }
+
+  @Test public void softValues() {
+    Memoization memoization = Memoization.maximumSize(10).softValues();
+    Provider<A> provider = InterceptingObjectGraph.of(graph, memoization, A.class).provider(A.class);
+    assertThat(provider.get()).isSameAs(provider.get());
+    memoization.invalidateAll();
+    assertThat(memoization.size()).isEqualTo(0);
+  }
+
+  @Test public void threadLocalScope() throws Exception {
+    ThreadLocalScope scope = new ThreadLocalScope();
+    final ObjectGraph scoped = InterceptingObjectGraph.of(graph, scope, A.class);
+    A a = scoped.get(A.class);
+    assertThat(scoped.get(A.class)).isSameAs(a);
+    assertThat(scoped.get(B.class)).isNotSameAs(scoped.get(B.class));
+
+    final AtomicReference<A> other = new AtomicReference<>();
+    Thread thread = new Thread() {
+      @Override public void run() {
+        A first = scoped.get(A.class);
+        if (scoped.get(A.class) == first) {
+          other.set(first);
+        }
+      }
+    };
+    thread.start();
+    thread.join();
+    assertThat(other.get()).isNotNull();
+    assertThat(other.get()).isNotSameAs(a);
+
+    scope.clear();
+    assertThat(scoped.get(A.class)).isNotSameAs(a);
+  }
+
+  @Test public void threadLocalScopeReleasesInstancesOfCollectedGraphs() throws Exception {
+    ThreadLocalScope scope = new ThreadLocalScope();
+    ObjectGraph scoped = InterceptingObjectGraph.of(graph, scope, A.class);
+    WeakReference<A> reference = new WeakReference<>(scoped.get(A.class));
+    scoped = null;
+    ObjectGraph other = InterceptingObjectGraph.of(graph, scope, A.class);
+    // Instances of collected graphs are released as the thread's instances are used
+    for (int i = 0; i < 100 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+      other.get(A.class);
+    }
+    assertThat(reference.get()).isNull();
+  }
+
+  @Test public void singleFlight() throws Exception {
+    final ObjectGraph coalescing = InterceptingObjectGraph.of(graph, SingleFlight.create(), Slow.class);
+    final List<Slow> instances = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(new Thread() {
+        @Override public void run() {
+          Slow slow = coalescing.get(Slow.class);
+          synchronized (instances) {
+            instances.add(slow);
+          }
+        }
+      });
+    }
+    threads.get(0).start();
+    module.slowStarted.await();
+    for (Thread thread : threads.subList(1, threads.size())) {
+      thread.start();
+      while (!isWaitingOnFuture(thread)) {
+        Thread.sleep(1);
+      }
+    }
+    module.slowRelease.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // threads queued for a new flight rather than joining the in-flight one would have built their own instance
+    assertThat(module.slowBuilds.get()).isEqualTo(1);
+    assertThat(instances).hasSize(4);
+    for (Slow slow : instances) {
+      assertThat(slow).isSameAs(instances.get(0));
+    }
+    // once done, a new provision starts
+    assertThat(coalescing.get(Slow.class)).isNotSameAs(instances.get(0));
+    assertThat(module.slowBuilds.get()).isEqualTo(2);
+  }
+
+  private static boolean isWaitingOnFuture(Thread thread) {
+    if (thread.getState() != Thread.State.WAITING) {
+      return false;
+    }
+    for (StackTraceElement element : thread.getStackTrace()) {
+      if (element.getClassName().equals(FutureTask.class.getName()) && element.getMethodName().equals("get")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test public void pooling() {
+    Pooling pooling = Pooling.maximumSize(1);
+    ObjectGraph pooled = InterceptingObjectGraph.of(graph, pooling, A.class, B.class);
+    A a = pooled.get(A.class);
+    A other = pooled.get(A.class);
+    assertThat(other).isNotSameAs(a);
+    assertThat(pooling.missCount()).isEqualTo(2L);
+
+    pooling.release(a);
+    pooling.release(other); // pool is full
+    assertThat(pooling.size()).isEqualTo(1);
+    assertThat(pooling.size(Key.get(A.class))).isEqualTo(1);
+    assertThat(pooled.get(A.class)).isSameAs(a);
+    assertThat(pooling.hitCount()).isEqualTo(1L);
+    assertThat(pooling.size()).isEqualTo(0);
+
+    B b = pooled.get(B.class);
+    pooling.release(Key.get(B.class), b);
+    assertThat(pooled.provider(B.class).get()).isSameAs(b);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void poolingThrowsOnReleasingUnknownType() {
+    Pooling pooling = Pooling.maximumSize(1);
+    InterceptingObjectGraph.of(graph, pooling, A.class);
+    pooling.release(new B());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void poolingThrowsOnSharingKeysAcrossGraphs() {
+    Pooling pooling = Pooling.maximumSize(1);
+    InterceptingObjectGraph.of(graph, pooling, A.class);
+    InterceptingObjectGraph.of(graph, pooling, A.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnUnknownType() {
+    InterceptingObjectGraph.of(graph, Memoization.maximumSize(10), String.class);
+  }
+}
@@ -0,0 +1,89 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+
+import bullet.LazyObjectGraph;
+import bullet.ObjectGraph;
+import dagger.Component;
+
+public class LazyObjectGraphTest {
+
+  static class A {
+    @Inject A() {}
+  }
+  static class Injected {
+    @Inject A a;
+  }
+
+  @Component
+  interface SimpleComponent {
+    A a();
+    void inject(Injected injected);
+  }
+
+  static class CountingFactory implements LazyObjectGraph.Factory {
+    final AtomicInteger builds = new AtomicInteger();
+
+    @Override
+    public ObjectGraph create() {
+      builds.incrementAndGet();
+      return new BulletLazyObjectGraphTest_SimpleComponent(DaggerLazyObjectGraphTest_SimpleComponent.create());
+    }
+  }
+
+  @Test public void buildsOnFirstUse() {
+    CountingFactory factory = new CountingFactory();
+    LazyObjectGraph graph = LazyObjectGraph.of(factory);
+    assertThat(graph.isBuilt()).isFalse();
+    assertThat(factory.builds.get()).isEqualTo(0);
+
+    assertThat(graph.get(A.class)).isNotNull();
+    assertThat(graph.isBuilt()).isTrue();
+    assertThat(graph.inject(new Injected()).a).isNotNull();
+    assertThat(graph.canProvide(A.class)).isTrue();
+    assertThat(factory.builds.get()).isEqualTo(1);
+  }
+
+  @Test public void prebuild() {
+    CountingFactory factory = new CountingFactory();
+    LazyObjectGraph graph = LazyObjectGraph.of(factory);
+    graph.prebuild(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    });
+    assertThat(graph.isBuilt()).isTrue();
+    graph.get(A.class);
+    assertThat(factory.builds.get()).isEqualTo(1);
+  }
+
+  @Test public void retriesFailedBuilds() {
+    final AtomicInteger attempts = new AtomicInteger();
+    LazyObjectGraph graph = LazyObjectGraph.of(new CountingFactory() {
+      @Override
+      public ObjectGraph create() {
+        if (attempts.incrementAndGet() == 1) {
+          throw new IllegalStateException("boom");
+        }
+        return super.create();
+      }
+    });
+    try {
+      graph.get(A.class);
+      fail();
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).isEqualTo("boom");
+    }
+    assertThat(graph.isBuilt()).isFalse();
+    assertThat(graph.get(A.class)).isNotNull();
+  }
+}
@@ -1,8 +1,16 @@
 package test;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 
@@ -10,8 +18,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
 
+import bullet.LazyInjection;
 import bullet.ObjectGraph;
 import dagger.Component;
+import dagger.MembersInjector;
 import dagger.Module;
 import dagger.Provides;
 
@@ -119,4 +129,137 @@ public class MembersInjectionTest {
     assertThat(d.e).isNotNull();
     verifyNoMoreInteractions(component);
   }
+
+  @Test public void testStaticInject() {
+    C c = new C();
+    assertThat(BulletMembersInjectionTest_SimpleComponent.inject(component, c)).isSameAs(c);
+    verify(component).c(c);
+    assertThat(c.a).isNotNull();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testSameRuntimeClassTwice() {
+    C c1 = new C();
+    C c2 = new C();
+    assertThat(graph.inject(c1)).isSameAs(c1);
+    assertThat(graph.inject(c2)).isSameAs(c2);
+    verify(component).c(c1);
+    verify(component).c(c2);
+    assertThat(c2.a).isNotNull();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testInjectAll() {
+    A a = new A();
+    C c1 = new C();
+    C c2 = new C();
+    graph.injectAll(Arrays.<Object>asList(c1, a, c2));
+    verify(component).a(a);
+    verify(component).c(c1);
+    verify(component).c(c2);
+    assertThat(a.e).isNotNull();
+    assertThat(c2.a).isNotNull();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testInjectAllWithExecutor() {
+    List<C> cs = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      cs.add(new C());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      graph.injectAll(cs, executor);
+    } finally {
+      executor.shutdown();
+    }
+    for (C c : cs) {
+      verify(component).c(c);
+      assertThat(c.a).isNotNull();
+    }
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void injectAllThrowsBeforeInjectingAnything() {
+    A a = new A();
+    try {
+      graph.injectAll(Arrays.asList(a, new Object()));
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    assertThat(a.e).isNull();
+    verifyZeroInteractions(component);
+  }
+
+  @Test public void testLazyInjection() {
+    A a = new A();
+    C c1 = new C();
+    C c2 = new C();
+    Iterator<Object> iterator = LazyInjection.injecting(graph, Arrays.<Object>asList(c1, a, c2)).iterator();
+    verifyZeroInteractions(component);
+    assertThat(iterator.next()).isSameAs(c1);
+    verify(component).c(c1);
+    assertThat(c2.a).isNull();
+    assertThat(iterator.next()).isSameAs(a);
+    verify(component).a(a);
+    assertThat(iterator.next()).isSameAs(c2);
+    verify(component).c(c2);
+    assertThat(c2.a).isNotNull();
+    assertThat(iterator.hasNext()).isFalse();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void lazyInjectionThrowsOnUnknownType() {
+    LazyInjection.injecting(graph, Arrays.asList(new Object()).iterator()).next();
+  }
+
+  @Test public void testMembersInjector() {
+    MembersInjector<C> membersInjector = graph.membersInjector(C.class);
+    verifyZeroInteractions(component);
+    C c = new C();
+    membersInjector.injectMembers(c);
+    verify(component).c(c);
+    assertThat(c.a).isNotNull();
+    assertThat(c.iProvider).isNotNull();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testMembersInjectorForSupertype() {
+    // Injects the members declared by the given type, whatever the runtime class of the instance.
+    MembersInjector<B> membersInjector = graph.membersInjector(B.class);
+    C c = new C();
+    membersInjector.injectMembers(c);
+    verify(component).b(c);
+    assertThat(c.a).isNotNull();
+    assertThat(c.iProvider).isNull();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void membersInjectorThrowsOnUnknownType() {
+    graph.membersInjector(Object.class);
+  }
+
+  @Test public void testCanInject() {
+    assertThat(graph.canInject(A.class)).isTrue();
+    assertThat(graph.canInject(C.class)).isTrue();
+    assertThat(graph.canInject(new I() {}.getClass())).isTrue();
+    assertThat(graph.canInject(Object.class)).isFalse();
+    assertThat(graph.canProvide(A.class)).isFalse();
+    verifyZeroInteractions(component);
+  }
+
+  @Test public void throwsOnUnknownType() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        graph.inject(new Object());
+        fail();
+      } catch (IllegalArgumentException expected) {
+        // expected
+      }
+    }
+    verifyZeroInteractions(component);
+  }
 }
@@ -0,0 +1,180 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+
+import bullet.ObjectGraph;
+import bullet.ObjectGraphCache;
+import dagger.Component;
+
+public class ObjectGraphCacheTest {
+
+  static class A {
+    @Inject A() {}
+  }
+
+  @Component
+  interface SimpleComponent {
+    A a();
+  }
+
+  static class CountingLoader implements ObjectGraphCache.Loader<String> {
+    final AtomicInteger builds = new AtomicInteger();
+
+    @Override
+    public ObjectGraph load(String tenant) {
+      builds.incrementAndGet();
+      return new BulletObjectGraphCacheTest_SimpleComponent(DaggerObjectGraphCacheTest_SimpleComponent.create());
+    }
+  }
+
+  static class RecordingListener implements ObjectGraphCache.RemovalListener<String> {
+    final List<String> removed = new ArrayList<>();
+
+    @Override
+    public synchronized void onRemoval(String tenant, ObjectGraph graph) {
+      removed.add(tenant);
+    }
+  }
+
+  @Test public void cachesByKey() {
+    CountingLoader loader = new CountingLoader();
+    ObjectGraphCache<String> cache = ObjectGraphCache.create(10, loader);
+    ObjectGraph foo = cache.get("foo");
+    assertThat(cache.get("foo")).isSameAs(foo);
+    assertThat(cache.getIfPresent("foo")).isSameAs(foo);
+    assertThat(cache.get("bar")).isNotSameAs(foo);
+    assertThat(cache.getIfPresent("baz")).isNull();
+    assertThat(loader.builds.get()).isEqualTo(2);
+    assertThat(foo.get(A.class)).isNotNull();
+  }
+
+  @Test public void evictsLeastRecentlyUsed() throws Exception {
+    RecordingListener listener = new RecordingListener();
+    ObjectGraphCache<String> cache = ObjectGraphCache.create(2, new CountingLoader(), listener);
+    ObjectGraph foo = cache.get("foo");
+    Thread.sleep(1);
+    cache.get("bar");
+    Thread.sleep(1);
+    assertThat(cache.get("foo")).isSameAs(foo);
+    Thread.sleep(1);
+    cache.get("baz");
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(listener.removed).isEqualTo(Arrays.asList("bar"));
+    assertThat(cache.getIfPresent("foo")).isSameAs(foo);
+  }
+
+  @Test public void neverEvictsObjectGraphBeingReturned() throws Exception {
+    final RecordingListener listener = new RecordingListener();
+    final List<ObjectGraphCache<String>> cacheHolder = new ArrayList<>();
+    ObjectGraphCache<String> cache = ObjectGraphCache.create(1, new CountingLoader() {
+      @Override
+      public ObjectGraph load(String tenant) {
+        if (tenant.equals("bar")) {
+          // other object graphs are used while this one is being built
+          cacheHolder.get(0).get("foo");
+          try {
+            Thread.sleep(1);
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+        }
+        return super.load(tenant);
+      }
+    }, listener);
+    cacheHolder.add(cache);
+    cache.get("foo");
+    Thread.sleep(1);
+    ObjectGraph bar = cache.get("bar");
+    assertThat(listener.removed).isEqualTo(Arrays.asList("foo"));
+    assertThat(cache.getIfPresent("bar")).isSameAs(bar);
+  }
+
+  @Test public void notifiesInvalidations() {
+    RecordingListener listener = new RecordingListener();
+    ObjectGraphCache<String> cache = ObjectGraphCache.create(10, new CountingLoader(), listener);
+    ObjectGraph foo = cache.get("foo");
+    cache.get("bar");
+    cache.invalidate("foo");
+    assertThat(listener.removed).isEqualTo(Arrays.asList("foo"));
+    assertThat(cache.get("foo")).isNotSameAs(foo);
+    cache.invalidateAll();
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(listener.removed).hasSize(3);
+  }
+
+  @Test public void buildsOnceForConcurrentRequests() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountingLoader loader = new CountingLoader() {
+      @Override
+      public ObjectGraph load(String tenant) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        return super.load(tenant);
+      }
+    };
+    final ObjectGraphCache<String> cache = ObjectGraphCache.create(10, loader);
+    final List<ObjectGraph> graphs = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread() {
+        @Override public void run() {
+          ObjectGraph graph = cache.get("foo");
+          synchronized (graphs) {
+            graphs.add(graph);
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      while (thread.getState() != Thread.State.WAITING) {
+        Thread.sleep(1);
+      }
+    }
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(loader.builds.get()).isEqualTo(1);
+    assertThat(graphs).hasSize(4);
+    for (ObjectGraph graph : graphs) {
+      assertThat(graph).isSameAs(graphs.get(0));
+    }
+  }
+
+  @Test public void retriesFailedBuilds() {
+    final AtomicInteger attempts = new AtomicInteger();
+    ObjectGraphCache<String> cache = ObjectGraphCache.create(10, new CountingLoader() {
+      @Override
+      public ObjectGraph load(String tenant) {
+        if (attempts.incrementAndGet() == 1) {
+          throw new IllegalStateException("boom");
+        }
+        return super.load(tenant);
+      }
+    });
+    try {
+      cache.get("foo");
+      fail();
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).isEqualTo("boom");
+    }
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(cache.get("foo")).isNotNull();
+  }
+}
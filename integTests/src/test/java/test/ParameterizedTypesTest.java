@@ -0,0 +1,126 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
+
+import bullet.Key;
+import bullet.ObjectGraph;
+import dagger.Component;
+import dagger.Module;
+import dagger.Provides;
+
+public class ParameterizedTypesTest {
+
+  static class Box<T> {
+    final T value;
+
+    Box(T value) {
+      this.value = value;
+    }
+  }
+
+  @Module
+  static class SimpleModule {
+    @Provides List<String> strings() { return Arrays.asList("a", "b"); }
+    @Provides List<Integer> integers() { return Arrays.asList(1, 2); }
+    @Provides @Named("empty") List<String> empty() { return Collections.emptyList(); }
+    @Provides Map<String, List<? extends Number>> map() { return Collections.<String, List<? extends Number>>singletonMap("one", Arrays.asList(1)); }
+    @Provides Box<String[]> box() { return new Box<>(new String[] { "boxed" }); }
+  }
+
+  // XXX: interface must be public for Mockito ForwardsInvocations to work
+  @Component(modules = SimpleModule.class)
+  public interface SimpleComponent {
+    List<String> strings();
+    Provider<List<Integer>> integers();
+    @Named("empty") List<String> empty();
+    Map<String, List<? extends Number>> map();
+    Box<String[]> box();
+  }
+
+  SimpleComponent component;
+  ObjectGraph graph;
+
+  @Before public void setUp() {
+    // We cannot spy the Dagger‡ component as it's final, so we wrap it in a mock that delegates to it.
+    // We want to test both that the method is called (mockito) and that everything actually works (dagger).
+    SimpleComponent realComponent = DaggerParameterizedTypesTest_SimpleComponent.create();
+    this.component = mock(SimpleComponent.class, new ForwardsInvocations(realComponent));
+    graph = new BulletParameterizedTypesTest_SimpleComponent(component);
+  }
+
+  @Test public void testTypeLiteral() {
+    Key<List<String>> strings = new Key<List<String>>() {};
+    assertThat(graph.get(strings)).isEqualTo(Arrays.asList("a", "b"));
+    verify(component).strings();
+    assertThat(graph.get(new Key<List<Integer>>() {})).isEqualTo(Arrays.asList(1, 2));
+    verify(component).integers();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testQualified() {
+    assertThat(graph.get(new Key<List<String>>(Key.named(String.class, "empty").getQualifier()) {})).isEmpty();
+    verify(component).empty();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testWildcardsAndArrays() {
+    assertThat(graph.get(new Key<Map<String, List<? extends Number>>>() {})).isEqualTo(Collections.singletonMap("one", Arrays.asList(1)));
+    verify(component).map();
+    assertThat(Arrays.asList(graph.get(new Key<Box<String[]>>() {}).value)).isEqualTo(Arrays.asList("boxed"));
+    verify(component).box();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testReflectedType() throws Exception {
+    Type type = SimpleComponent.class.getMethod("strings").getGenericReturnType();
+    assertThat(Key.get(type)).isEqualTo(new Key<List<String>>() {});
+    assertThat(graph.get(Key.get(type))).isEqualTo(Arrays.asList("a", "b"));
+    verify(component).strings();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testRawType() {
+    // Raw types resolve to the first method for that type, as with get(Class)
+    @SuppressWarnings("unchecked")
+    List<String> byClass = graph.get(List.class);
+    @SuppressWarnings("unchecked")
+    List<String> byKey = graph.get(Key.get(List.class));
+    assertThat(byClass).isEqualTo(Arrays.asList("a", "b"));
+    assertThat(byKey).isEqualTo(Arrays.asList("a", "b"));
+    verify(component, times(2)).strings();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testProbes() {
+    assertThat(graph.canProvide(new Key<List<String>>() {})).isTrue();
+    assertThat(graph.canProvide(new Key<List<Object>>() {})).isFalse();
+    assertThat(graph.canProvide(new Key<Map<String, List<Number>>>() {})).isFalse();
+    assertThat(graph.tryGet(new Key<List<Long>>() {})).isNull();
+    verifyZeroInteractions(component);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnUnknownTypeArguments() {
+    graph.get(new Key<List<Long>>() {});
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void throwsOnIndirectSubclass() {
+    class StringsKey extends Key<List<String>> {}
+    new StringsKey() {};
+  }
+}
@@ -0,0 +1,84 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
+
+import bullet.Key;
+import bullet.ObjectGraph;
+import dagger.Component;
+import dagger.Module;
+import dagger.Provides;
+
+public class PrimitivesTest {
+
+  @Module
+  static class SimpleModule {
+    @Provides @Named("maxConnections") int maxConnections() { return 42; }
+    @Provides @Named("timeout") long timeoutMillis() { return 30000L; }
+    @Provides double ratio() { return 0.75; }
+    @Provides boolean enabled() { return true; }
+    @Provides @Named("boxed") Integer boxed() { return 7; }
+  }
+
+  // XXX: interface must be public for Mockito ForwardsInvocations to work
+  @Component(modules = SimpleModule.class)
+  public interface SimpleComponent {
+    @Named("maxConnections") int maxConnections();
+    @Named("timeout") long timeoutMillis();
+    double ratio();
+    boolean enabled();
+    @Named("boxed") Provider<Integer> boxed();
+  }
+
+  static final Key<Integer> MAX_CONNECTIONS = Key.named(Integer.class, "maxConnections");
+
+  SimpleComponent component;
+  ObjectGraph graph;
+
+  @Before public void setUp() {
+    // We cannot spy the Dagger‡ component as it's final, so we wrap it in a mock that delegates to it.
+    // We want to test both that the method is called (mockito) and that everything actually works (dagger).
+    SimpleComponent realComponent = DaggerPrimitivesTest_SimpleComponent.create();
+    this.component = mock(SimpleComponent.class, new ForwardsInvocations(realComponent));
+    graph = new BulletPrimitivesTest_SimpleComponent(component);
+  }
+
+  @Test public void testPrimitiveAccessors() {
+    assertThat(graph.getInt(MAX_CONNECTIONS)).isEqualTo(42);
+    verify(component).maxConnections();
+    assertThat(graph.getLong(Key.named(Long.class, "timeout"))).isEqualTo(30000L);
+    verify(component).timeoutMillis();
+    assertThat(graph.getDouble(Key.get(Double.class))).isEqualTo(0.75);
+    verify(component).ratio();
+    assertThat(graph.getBoolean(Key.get(Boolean.class))).isTrue();
+    verify(component).enabled();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testBoxedMethod() {
+    assertThat(graph.getInt(Key.named(Integer.class, "boxed"))).isEqualTo(7);
+    verify(component).boxed();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testBoxedLookups() {
+    assertThat(graph.get(MAX_CONNECTIONS)).isEqualTo(42);
+    verify(component).maxConnections();
+    assertThat(graph.get(Double.class)).isEqualTo(0.75);
+    verify(component).ratio();
+    assertThat(graph.canProvide(Key.named(Long.class, "timeout"))).isTrue();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnUnknownKey() {
+    graph.getInt(Key.named(Integer.class, "unknown"));
+  }
+}
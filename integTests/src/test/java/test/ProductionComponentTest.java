@@ -0,0 +1,73 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import bullet.AsyncObjectGraph;
+import dagger.producers.ProducerModule;
+import dagger.producers.Produces;
+import dagger.producers.ProductionComponent;
+
+public class ProductionComponentTest {
+
+  static class NotInComponent {}
+
+  @ProducerModule
+  static class SimpleModule {
+    @Produces ListenableFuture<String> string() { return Futures.immediateFuture("produced"); }
+    @Produces Integer length(String string) { return string.length(); }
+  }
+
+  @ProductionComponent(modules = SimpleModule.class)
+  interface SimpleComponent {
+    ListenableFuture<String> string();
+    ListenableFuture<Integer> length();
+  }
+
+  static final Executor DIRECT_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  AsyncObjectGraph graph;
+
+  @Before public void setUp() {
+    graph = new BulletProductionComponentTest_SimpleComponent(DaggerProductionComponentTest_SimpleComponent.builder()
+        .executor(DIRECT_EXECUTOR)
+        .build());
+  }
+
+  @Test public void testProduction() throws Exception {
+    assertThat(graph.get(String.class).get()).isEqualTo("produced");
+    assertThat(graph.get(Integer.class).get()).isEqualTo(8);
+  }
+
+  @Test public void testListenableFuture() throws Exception {
+    ListenableFuture<Integer> length = new BulletProductionComponentTest_SimpleComponent(
+        DaggerProductionComponentTest_SimpleComponent.builder()
+            .executor(DIRECT_EXECUTOR)
+            .build())
+        .get(Integer.class);
+    assertThat(length.isDone()).isTrue();
+    assertThat(length.get()).isEqualTo(8);
+  }
+
+  @Test public void testCanProduce() {
+    assertThat(graph.canProduce(String.class)).isTrue();
+    assertThat(graph.canProduce(NotInComponent.class)).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnUnknownType() {
+    graph.get(NotInComponent.class);
+  }
+}
@@ -0,0 +1,128 @@
+package test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Qualifier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
+
+import bullet.Key;
+import bullet.ObjectGraph;
+import dagger.Component;
+import dagger.Module;
+import dagger.Provides;
+
+public class QualifiersTest {
+
+  @Qualifier
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Marker {}
+
+  @Qualifier
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Pool {
+    int size();
+  }
+
+  @Marker @Pool(size = 5)
+  static class Annotated {}
+
+  @Module
+  static class SimpleModule {
+    @Provides String unqualified() { return "unqualified"; }
+    @Provides @Named("read") String read() { return "read"; }
+    @Provides @Named("write") String write() { return "write"; }
+    @Provides @Marker String marker() { return "marker"; }
+    @Provides @Pool(size = 5) String pool() { return "pool"; }
+  }
+
+  // XXX: interface must be public for Mockito ForwardsInvocations to work
+  @Component(modules = SimpleModule.class)
+  public interface SimpleComponent {
+    String unqualified();
+    @Named("read") String read();
+    @Named("write") Provider<String> write();
+    @Marker String marker();
+    @Pool(size = 5) String pool();
+  }
+
+  SimpleComponent component;
+  ObjectGraph graph;
+
+  @Before public void setUp() {
+    // We cannot spy the Dagger‡ component as it's final, so we wrap it in a mock that delegates to it.
+    // We want to test both that the method is called (mockito) and that everything actually works (dagger).
+    SimpleComponent realComponent = DaggerQualifiersTest_SimpleComponent.create();
+    this.component = mock(SimpleComponent.class, new ForwardsInvocations(realComponent));
+    graph = new BulletQualifiersTest_SimpleComponent(component);
+  }
+
+  @Test public void testUnqualified() {
+    assertThat(graph.get(Key.get(String.class))).isEqualTo("unqualified");
+    assertThat(graph.get(String.class)).isEqualTo("unqualified");
+    verify(component, times(2)).unqualified();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testNamed() {
+    Key<String> read = Key.named(String.class, "read");
+    assertThat(graph.get(read)).isEqualTo("read");
+    assertThat(graph.get(read)).isEqualTo("read");
+    verify(component, times(2)).read();
+    assertThat(graph.get(Key.named(String.class, "write"))).isEqualTo("write");
+    verify(component).write();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testNamedFromReflection() throws Exception {
+    Named named = SimpleComponent.class.getMethod("read").getAnnotation(Named.class);
+    assertThat(graph.get(Key.get(String.class, named))).isEqualTo("read");
+    assertThat(Key.get(String.class, named)).isEqualTo(Key.named(String.class, "read"));
+    verify(component).read();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testMarker() {
+    assertThat(graph.get(Key.get(String.class, Marker.class))).isEqualTo("marker");
+    Marker marker = Annotated.class.getAnnotation(Marker.class);
+    assertThat(graph.get(Key.get(String.class, marker))).isEqualTo("marker");
+    verify(component, times(2)).marker();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testQualifierWithAttributes() {
+    Pool pool = Annotated.class.getAnnotation(Pool.class);
+    assertThat(graph.get(Key.get(String.class, pool))).isEqualTo("pool");
+    verify(component).pool();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testProvider() {
+    Provider<String> provider = graph.provider(Key.named(String.class, "read"));
+    verifyZeroInteractions(component);
+    assertThat(provider.get()).isEqualTo("read");
+    verify(component).read();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void testProbes() {
+    assertThat(graph.canProvide(Key.named(String.class, "read"))).isTrue();
+    assertThat(graph.canProvide(Key.named(String.class, "unknown"))).isFalse();
+    assertThat(graph.canProvide(Key.named(Object.class, "read"))).isFalse();
+    assertThat(graph.tryGet(Key.named(String.class, "unknown"))).isNull();
+    verifyZeroInteractions(component);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnUnknownQualifier() {
+    graph.get(Key.named(String.class, "unknown"));
+  }
+}
@@ -3,7 +3,12 @@ package test;
 import static com.google.common.truth.Truth.*;
 import static org.mockito.Mockito.*;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -29,6 +34,10 @@ public class SimpleComponentTest {
   static class NotInComponent extends A {
     @Inject NotInComponent() {}
   }
+  @Singleton
+  static class S {
+    @Inject S(B b) {}
+  }
 
   @Subcomponent
   interface SimpleSubcomponent {
@@ -43,6 +52,13 @@ public class SimpleComponentTest {
     SimpleSubcomponent subcomponent();
   }
 
+  @Singleton
+  @Component
+  public interface ScopedComponent {
+    A a();
+    S s();
+  }
+
   SimpleComponent component;
   ObjectGraph graph;
 
@@ -60,6 +76,112 @@ public class SimpleComponentTest {
     assertThat(a).isNotNull();
   }
 
+  @Test public void testOtherBinding() {
+    B b = graph.get(B.class);
+    verify(component).b();
+    assertThat(b).isNotNull();
+    assertThat(b.a).isNotNull();
+  }
+
+  @Test public void testProvider() {
+    Provider<B> provider = graph.provider(B.class);
+    verifyZeroInteractions(component);
+    B b1 = provider.get();
+    B b2 = provider.get();
+    verify(component, times(2)).b();
+    assertThat(b1).isNotNull();
+    assertThat(b2).isNotSameAs(b1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void providerThrowsOnUnknownType() {
+    graph.provider(NotInComponent.class);
+  }
+
+  @Test public void testTryGet() {
+    A a = graph.tryGet(A.class);
+    verify(component).a();
+    assertThat(a).isNotNull();
+  }
+
+  @Test public void tryGetReturnsNullOnUnknownType() {
+    assertThat(graph.tryGet(NotInComponent.class)).isNull();
+    assertThat(graph.tryGet(SimpleSubcomponent.class)).isNull();
+    verifyZeroInteractions(component);
+  }
+
+  @Test public void testCanProvide() {
+    assertThat(graph.canProvide(A.class)).isTrue();
+    assertThat(graph.canProvide(B.class)).isTrue();
+    assertThat(graph.canProvide(NotInComponent.class)).isFalse();
+    assertThat(graph.canProvide(SimpleSubcomponent.class)).isFalse();
+    assertThat(graph.canInject(B.class)).isFalse();
+    verifyZeroInteractions(component);
+  }
+
+  @Test public void testStaticGet() {
+    B b = BulletSimpleComponentTest_SimpleComponent.get(component, B.class);
+    verify(component).b();
+    verifyNoMoreInteractions(component);
+    assertThat(b).isNotNull();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void staticGetThrowsOnUnknownType() {
+    BulletSimpleComponentTest_SimpleComponent.get(component, NotInComponent.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void staticInjectThrowsOnMembersInjection() {
+    BulletSimpleComponentTest_SimpleComponent.inject(component, new B());
+  }
+
+  @Test public void testBindingKey() {
+    B b = graph.get(BulletSimpleComponentTest_SimpleComponent.Keys.B);
+    verify(component).b();
+    verifyNoMoreInteractions(component);
+    assertThat(b).isNotNull();
+    assertThat(new BulletSimpleComponentTest_SimpleComponent(component).get(BulletSimpleComponentTest_SimpleComponent.Keys.A)).isNotNull();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void throwsOnBindingKeyOfOtherGraph() {
+    graph.get(BulletSimpleComponentTest_SimpleSubcomponent.Keys.C);
+  }
+
+  @Test public void testWarmUp() {
+    ScopedComponent scopedComponent = mock(ScopedComponent.class,
+        new ForwardsInvocations(DaggerSimpleComponentTest_ScopedComponent.create()));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      new BulletSimpleComponentTest_ScopedComponent(scopedComponent).warmUp(executor);
+    } finally {
+      executor.shutdown();
+    }
+    // Unscoped bindings aren't warmed up
+    verify(scopedComponent).s();
+    verifyNoMoreInteractions(scopedComponent);
+  }
+
+  @Test public void testSubcomponentGraph() {
+    ObjectGraph subgraph = new BulletSimpleComponentTest_SimpleComponent(component).subcomponent();
+    verify(component).subcomponent();
+    assertThat(subgraph.get(C.class)).isNotNull();
+    verifyNoMoreInteractions(component);
+    // Misses are delegated to the parent graph
+    assertThat(subgraph.get(A.class)).isNotNull();
+    verify(component).a();
+    assertThat(subgraph.canProvide(B.class)).isTrue();
+    assertThat(subgraph.canProvide(NotInComponent.class)).isFalse();
+    assertThat(subgraph.tryGet(NotInComponent.class)).isNull();
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void subcomponentGraphThrowsOnUnknownType() {
+    new BulletSimpleComponentTest_SimpleComponent(component).subcomponent().get(NotInComponent.class);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void throwsOnUnknownType() {
     graph.get(NotInComponent.class);
@@ -75,4 +197,9 @@ public class SimpleComponentTest {
     B b = new B();
     graph.inject(b);
   }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void membersInjectorThrowsOnMembersInjection() {
+    graph.membersInjector(B.class);
+  }
 }
@@ -64,6 +64,13 @@ public class SimpleSubcomponentTest {
     assertThat(a).isNotNull();
   }
 
+  @Test public void testOtherBinding() {
+    B b = graph.get(B.class);
+    verify(component).b();
+    assertThat(b).isNotNull();
+    assertThat(b.a).isNotNull();
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void throwsOnUnknownType() {
     graph.get(NotInComponent.class);
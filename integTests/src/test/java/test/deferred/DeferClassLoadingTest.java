@@ -0,0 +1,107 @@
+package test.deferred;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Method;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
+
+import bullet.ObjectGraph;
+import dagger.Component;
+
+/** Same as {@code MembersInjectionTest}, with the {@code bullet.deferClassLoading} processor option. */
+public class DeferClassLoadingTest {
+
+  static abstract class I {
+    E e;
+    @Inject void setE(E e) { this.e = e; }
+  }
+  static abstract class I2 extends I {
+    B b;
+    @Inject void setB(B b) { this.b = b; }
+  }
+  interface J {
+  }
+  static final class A extends I implements J {
+    @Inject A() {}
+  }
+  static class B {
+    @Inject E e;
+    @Inject B() {}
+  }
+  static final class C extends B implements J {
+  }
+  static final class D extends I2 {
+  }
+  static final class E {
+    @Inject E() {}
+  }
+  static boolean unrelatedInitialized;
+  static class Unrelated {
+    static {
+      unrelatedInitialized = true;
+    }
+    @Inject Unrelated() {}
+  }
+
+  // XXX: interface must be public for Mockito ForwardsInvocations to work
+  @Component
+  public interface SimpleComponent {
+    void i(I i);
+    void i2(I2 i2);
+    void b(B b);
+    void j(J j);
+  }
+
+  // Not mocked: Mockito would load all the types of the component methods
+  @Component
+  interface LoadingComponent {
+    Unrelated unrelated();
+    B b();
+    void i2(I2 i2);
+  }
+
+  @Test public void testSubclasses() {
+    // We cannot spy the Dagger‡ component as it's final, so we wrap it in a mock that delegates to it.
+    SimpleComponent component = mock(SimpleComponent.class,
+        new ForwardsInvocations(DaggerDeferClassLoadingTest_SimpleComponent.create()));
+    ObjectGraph graph = new BulletDeferClassLoadingTest_SimpleComponent(component);
+
+    // Resolved through the superclass
+    A a = graph.inject(new A());
+    verify(component).i(a);
+    assertThat(a.e).isNotNull();
+    // Resolved through the superclass rather than the interface
+    C c = graph.inject(new C());
+    verify(component).b(c);
+    assertThat(c.e).isNotNull();
+    // Resolved to the most specific superclass
+    D d = graph.inject(new D());
+    verify(component).i2(d);
+    assertThat(d.b).isNotNull();
+    assertThat(d.e).isNotNull();
+    // Resolved through the interface
+    J j = graph.inject(new J() {});
+    verify(component).j(j);
+    verifyNoMoreInteractions(component);
+
+    assertThat(graph.canInject(E.class)).isFalse();
+  }
+
+  @Test public void doesNotLoadUnrelatedTypes() throws Exception {
+    ObjectGraph graph = new BulletDeferClassLoadingTest_LoadingComponent(DaggerDeferClassLoadingTest_LoadingComponent.create());
+    assertThat(graph.get(B.class)).isNotNull();
+    assertThat(graph.inject(new D()).e).isNotNull();
+    assertThat(graph.canProvide(E.class)).isFalse();
+
+    Method findLoadedClass = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+    findLoadedClass.setAccessible(true);
+    // Don't use Unrelated.class, that would load it
+    assertThat(findLoadedClass.invoke(getClass().getClassLoader(), getClass().getName() + "$Unrelated")).isNull();
+    assertThat(unrelatedInitialized).isFalse();
+  }
+}
@@ -0,0 +1,140 @@
+package test.idempotent;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.stubbing.defaultanswers.ForwardsInvocations;
+
+import bullet.InjectedInstances;
+import bullet.ObjectGraph;
+import dagger.Component;
+
+/** Tests the {@code bullet.idempotentInject} processor option. */
+public class IdempotentInjectTest {
+
+  static class A {
+    @Inject A() {}
+  }
+  static class B {
+    @Inject A a;
+  }
+  static class Base {
+    @Inject A a;
+  }
+  static class Sub extends Base {
+    @Inject A subA;
+  }
+  /** All instances are equal, but they're still distinct instances to inject. */
+  static class Equal {
+    @Inject A a;
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Equal;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  }
+
+  // XXX: interface must be public for Mockito ForwardsInvocations to work
+  @Component
+  public interface SimpleComponent {
+    void b(B b);
+    void equal(Equal equal);
+    void base(Base base);
+    void sub(Sub sub);
+  }
+
+  SimpleComponent component;
+  ObjectGraph graph;
+
+  @Before public void setUp() {
+    // We cannot spy the Dagger‡ component as it's final, so we wrap it in a mock that delegates to it.
+    SimpleComponent realComponent = DaggerIdempotentInjectTest_SimpleComponent.create();
+    this.component = mock(SimpleComponent.class, new ForwardsInvocations(realComponent));
+    graph = new BulletIdempotentInjectTest_SimpleComponent(component);
+  }
+
+  @Test public void injectsOnlyOnce() {
+    B b = new B();
+    assertThat(graph.inject(b)).isSameAs(b);
+    A a = b.a;
+    assertThat(graph.inject(b)).isSameAs(b);
+    graph.membersInjector(B.class).injectMembers(b);
+    graph.injectAll(Arrays.asList(b));
+    verify(component).b(b);
+    assertThat(b.a).isSameAs(a);
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void membersInjectorAndInjectAllAreTracked() {
+    B b1 = new B();
+    B b2 = new B();
+    graph.membersInjector(B.class).injectMembers(b1);
+    graph.injectAll(Arrays.asList(b2));
+    graph.inject(b1);
+    graph.inject(b2);
+    verify(component).b(b1);
+    verify(component).b(b2);
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void tracksOnlyFullyInjectedInstances() {
+    Sub sub = new Sub();
+    graph.membersInjector(Base.class).injectMembers(sub);
+    assertThat(sub.subA).isNull();
+    graph.inject(sub);
+    assertThat(sub.subA).isNotNull();
+    graph.membersInjector(Base.class).injectMembers(sub);
+    graph.inject(sub);
+    verify(component).base(sub);
+    verify(component).sub(sub);
+    verifyNoMoreInteractions(component);
+  }
+
+  @Test public void comparesByIdentity() {
+    Equal equal1 = new Equal();
+    Equal equal2 = new Equal();
+    graph.inject(equal1);
+    graph.inject(equal2);
+    // Mockito compares arguments with equals(), so use same()
+    verify(component).equal(same(equal1));
+    verify(component).equal(same(equal2));
+    assertThat(equal2.a).isNotNull();
+  }
+
+  @Test public void staticInjectIsNotTracked() {
+    B b = new B();
+    BulletIdempotentInjectTest_SimpleComponent.inject(component, b);
+    BulletIdempotentInjectTest_SimpleComponent.inject(component, b);
+    verify(component, times(2)).b(b);
+  }
+
+  @Test public void expungesCollectedInstances() throws Exception {
+    InjectedInstances instances = new InjectedInstances();
+    Object collected = new Object();
+    WeakReference<Object> reference = new WeakReference<>(collected);
+    instances.add(collected);
+    collected = null;
+    Object kept = new Object();
+    // Stale entries are expunged as new instances are added
+    for (int i = 0; i < 100 && (reference.get() != null || instances.size() > 1); i++) {
+      System.gc();
+      Thread.sleep(10);
+      instances.add(kept);
+    }
+    assertThat(reference.get()).isNull();
+    assertThat(instances.size()).isEqualTo(1);
+    assertThat(instances.contains(kept)).isTrue();
+  }
+}